@@ -2,11 +2,13 @@ package ru.yandex.practicum.filmorate;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Главный класс приложения рейтинга фильмов.
  */
 @SpringBootApplication
+@EnableScheduling
 public class FilmorateApplication {
 
     /**
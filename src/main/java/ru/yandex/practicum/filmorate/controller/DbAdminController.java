@@ -4,10 +4,14 @@ import jakarta.validation.constraints.Min;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.service.DbAdminService;
 
+import java.util.Map;
+
 /**
  * Класс обработки http запросов к информации о фильмах.
  */
@@ -41,5 +45,36 @@ public class DbAdminController {
         return service.removeUsersById(userId);
     }
 
+    /**
+     * Статистика кэша фильмов
+     *
+     * @return - размер, емкость, число попаданий, промахов и вытеснений
+     */
+    @GetMapping("/admin/film-cache")
+    public Map<String, Long> getFilmCacheStats() {
+        log.info("Читаем статистику кэша фильмов.");
+        return service.getFilmCacheStats();
+    }
 
+    /**
+     * Повторное чтение справочников жанров, рейтингов MPA и режиссеров после их изменения в базе данных
+     *
+     * @return - сообщение о выполнении
+     */
+    @PostMapping("/admin/dictionaries/refresh")
+    public String refreshDictionaries() {
+        log.info("Обновляем справочники.");
+        return service.refreshDictionaries();
+    }
+
+    /**
+     * Внеплановая очистка ленты событий по настройкам хранения
+     *
+     * @return - число удаленных событий по каждому правилу
+     */
+    @PostMapping("/admin/feed/compact")
+    public Map<String, Long> compactFeed() {
+        log.info("Очищаем ленту событий.");
+        return service.compactFeed();
+    }
 }
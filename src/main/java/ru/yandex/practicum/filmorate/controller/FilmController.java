@@ -1,11 +1,17 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import jakarta.validation.constraints.Min;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
@@ -13,8 +19,12 @@ import ru.yandex.practicum.filmorate.service.PopularService;
 import ru.yandex.practicum.filmorate.service.SearchService;
 import ru.yandex.practicum.filmorate.validator.Marker;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Класс обработки http запросов к информации о фильмах.
@@ -23,28 +33,75 @@ import java.util.Map;
 @RestController
 @RequestMapping("/films")
 public class FilmController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
 
     private final FilmService service;
     private final PopularService popularService;
     private final SearchService searchService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
 
     @Autowired
-    public FilmController(FilmService service, PopularService popularService, SearchService searchService) {
+    public FilmController(FilmService service, PopularService popularService, SearchService searchService,
+                          ObjectMapper objectMapper, Validator validator) {
         this.service = service;
         this.searchService = searchService;
         this.popularService = popularService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
     }
 
     /**
-     * Метод поиска всех фильмов
+     * Метод поиска фильмов.
+     * Без параметров возвращает все фильмы, с параметрами after и/или limit - страницу фильмов,
+     * упорядоченных по идентификатору. Если страница заполнена полностью,
+     * идентификатор для запроса следующей страницы передается в заголовке X-Next-Cursor.
      *
+     * @param after - идентификатор последнего фильма предыдущей страницы
+     * @param limit - размер страницы
      * @return - список фильмов
      */
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
-    public Collection<Film> findAllFilms() {
-        log.info("Ищем все фильмы {}.", service.findAllFilms().size());
-        return service.findAllFilms();
+    public ResponseEntity<Collection<Film>> findAllFilms(@RequestParam(required = false) Integer after,
+                                                         @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            Collection<Film> films = service.findAllFilms();
+            log.info("Ищем все фильмы {}.", films.size());
+            return ResponseEntity.ok(films);
+        }
+        log.info("Ищем фильмы после id={}, не более {}.", after, limit);
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        List<Film> films = List.copyOf(service.findFilms(after, pageSize));
+        if (films.isEmpty() || films.size() < pageSize) {
+            return ResponseEntity.ok(films);
+        }
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, films.getLast().getId().toString())
+                .body(films);
+    }
+
+    /**
+     * Потоковая выгрузка всех фильмов в формате NDJSON - по одному фильму в строке.
+     * Фильмы записываются в ответ по мере чтения из базы данных.
+     *
+     * @return - тело ответа, формируемое при передаче
+     */
+    @GetMapping(value = "/export", produces = NDJSON_MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
+        log.info("Выгружаем все фильмы.");
+        StreamingResponseBody body = outputStream -> service.exportFilms(film -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(film));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_MEDIA_TYPE))
+                .body(body);
     }
 
     /**
@@ -96,6 +153,28 @@ public class FilmController {
         return service.addNewFilm(film);
     }
 
+    /**
+     * Метод пакетного добавления фильмов.
+     * Каждый фильм проверяется так же, как при добавлении одного фильма.
+     * Фильмы добавляются в одной транзакции: при ошибке не добавляется ни один.
+     *
+     * @param films - список фильмов для добавления
+     * @return - список подтвержденных объектов с идентификаторами
+     */
+    @PostMapping("/bulk")
+    @ResponseStatus(HttpStatus.CREATED)
+    public List<Film> addFilms(@RequestBody List<Film> films) {
+        log.info("Добавляем фильмы: {}.", films.size());
+        for (int i = 0; i < films.size(); i++) {
+            Set<ConstraintViolation<Film>> violations = validator.validate(films.get(i), Marker.OnBasic.class);
+            if (!violations.isEmpty()) {
+                throw new ValidationException("Фильм №" + (i + 1) + ": "
+                        + violations.iterator().next().getMessage());
+            }
+        }
+        return service.addFilms(films);
+    }
+
     /**
      * Метод обновления информации о фильме.
      * При вызове метода промзводится проверка аннотаций только для маркера OnUpdate.class.
@@ -117,8 +196,7 @@ public class FilmController {
     public Map<String, String> addLike(@PathVariable("id") Integer filmId,
                                        @PathVariable("userId") Integer userId) {
         log.debug("Добавляем \"лайк\" фильму {}, от пользователя {}.", filmId, userId);
-        service.addNewLike(filmId, userId);
-        return service.getFilmRank(filmId);
+        return service.addNewLike(filmId, userId);
     }
 
     @DeleteMapping("/{id}/like/{userId}")
@@ -126,8 +204,7 @@ public class FilmController {
     public Map<String, String> removeLike(@PathVariable("id") Integer filmId,
                                           @PathVariable("userId") Integer userId) {
         log.debug("Удаляем \"лайк\" у фильма {}, от пользователя {}.", filmId, userId);
-        service.removeLike(filmId, userId);
-        return service.getFilmRank(filmId);
+        return service.removeLike(filmId, userId);
     }
 
     /**
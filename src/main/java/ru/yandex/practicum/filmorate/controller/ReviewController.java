@@ -4,6 +4,7 @@ import jakarta.validation.constraints.Pattern;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.model.Review;
@@ -11,12 +12,14 @@ import ru.yandex.practicum.filmorate.service.ReviewService;
 import ru.yandex.practicum.filmorate.validator.Marker;
 
 import java.util.Collection;
+import java.util.List;
 
 @Slf4j
 @RestController
 @RequestMapping("/reviews")
 @RequiredArgsConstructor
 public class ReviewController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     private final ReviewService reviewService;
 
@@ -74,16 +77,27 @@ public class ReviewController {
     /**
      * Получает список отзывов по фильму с лимитом на количество отзывов.
      *
+     * Если страница заполнена полностью, курсор "useful:reviewId" для запроса следующей страницы
+     * передается в заголовке X-Next-Cursor.
+     *
      * @param filmId id фильма, отзывы которого нужно получить
      * @param count  количество отзывов, которое нужно получить
+     * @param after  курсор последнего отзыва предыдущей страницы
      * @return список отзывов
      */
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
-    public Collection<Review> getReviews(@RequestParam(required = false) Integer filmId,
-                                         @RequestParam(defaultValue = "10") Integer count) {
-        log.info("Получаем список {} отзывов для фильма с id = {}.", count, filmId);
-        return reviewService.getReviews(filmId, count);
+    public ResponseEntity<Collection<Review>> getReviews(@RequestParam(required = false) Integer filmId,
+                                                         @RequestParam(defaultValue = "10") Integer count,
+                                                         @RequestParam(required = false) String after) {
+        log.info("Получаем список {} отзывов для фильма с id = {} после {}.", count, filmId, after);
+        List<Review> reviews = List.copyOf(reviewService.getReviews(filmId, count, after));
+        if (reviews.isEmpty() || reviews.size() < count) {
+            return ResponseEntity.ok(reviews);
+        }
+        Review last = reviews.getLast();
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, last.getUseful() + ":" + last.getReviewId())
+                .body(reviews);
     }
 
     /**
@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.model.Feed;
@@ -12,6 +13,7 @@ import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.validator.Marker;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Класс обработки http запросов о пользователях.
@@ -20,6 +22,8 @@ import java.util.Collection;
 @RestController
 @RequestMapping("/users")
 public class UserController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
 
     private final UserService userService;
     private final FeedService feedService;
@@ -31,15 +35,32 @@ public class UserController {
     }
 
     /**
-     * Метод поиска всех пользователей
+     * Метод поиска пользователей.
+     * Без параметров возвращает всех пользователей, с параметрами after и/или limit - страницу
+     * пользователей, упорядоченных по идентификатору. Если страница заполнена полностью,
+     * идентификатор для запроса следующей страницы передается в заголовке X-Next-Cursor.
      *
+     * @param after - идентификатор последнего пользователя предыдущей страницы
+     * @param limit - размер страницы
      * @return - список пользователей
      */
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
-    public Collection<User> findAllUser() {
-        log.info("Запрашиваем список всех пользователей {}.", userService.findAllUsers().size());
-        return userService.findAllUsers();
+    public ResponseEntity<Collection<User>> findAllUser(@RequestParam(required = false) Integer after,
+                                                        @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            Collection<User> users = userService.findAllUsers();
+            log.info("Запрашиваем список всех пользователей {}.", users.size());
+            return ResponseEntity.ok(users);
+        }
+        log.info("Запрашиваем пользователей после id={}, не более {}.", after, limit);
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        List<User> users = List.copyOf(userService.findUsers(after, pageSize));
+        if (users.isEmpty() || users.size() < pageSize) {
+            return ResponseEntity.ok(users);
+        }
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, users.getLast().getId().toString())
+                .body(users);
     }
 
     /**
@@ -81,15 +102,48 @@ public class UserController {
     }
 
     /**
-     * Метод вывода ленты событий пользователя
+     * Предложения друзей: друзья друзей пользователя в порядке убывания числа общих друзей
      *
-     * @param id - идентификатор пользователя
+     * @param id    - идентификатор пользователя
+     * @param count - максимальное число предложений
+     * @return - список пользователей
+     */
+    @GetMapping("/{id}/friends/suggestions")
+    public Collection<User> findFriendSuggestions(@PathVariable Integer id,
+                                                  @RequestParam(defaultValue = "10") Integer count) {
+        log.info("Ищем предложения друзей для пользователя id={}.", id);
+        return userService.getFriendSuggestions(id, count);
+    }
+
+    /**
+     * Метод вывода ленты событий пользователя.
+     * Без параметров возвращает всю ленту в порядке времени событий, с параметрами before и/или limit -
+     * страницу ленты, начиная с самых новых событий. Если страница заполнена полностью,
+     * курсор "timestamp:eventId" для запроса следующей страницы передается в заголовке X-Next-Cursor.
+     *
+     * @param id     - идентификатор пользователя
+     * @param before - курсор последнего события предыдущей страницы
+     * @param limit  - размер страницы
      * @return - список событий пользователя
      */
     @GetMapping("/{id}/feed")
-    public Collection<Feed> findFeed(@PathVariable Integer id) {
-        log.info("Получаем ленту событий пользователя id={}.", id);
-        return feedService.findAllFeeds(id);
+    public ResponseEntity<Collection<Feed>> findFeed(@PathVariable Integer id,
+                                                     @RequestParam(required = false) String before,
+                                                     @RequestParam(required = false) Integer limit) {
+        if (before == null && limit == null) {
+            log.info("Получаем ленту событий пользователя id={}.", id);
+            return ResponseEntity.ok(feedService.findAllFeeds(id));
+        }
+        log.info("Получаем ленту событий пользователя id={} до события {}, не более {}.", id, before, limit);
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        List<Feed> feeds = List.copyOf(feedService.findFeeds(id, before, pageSize));
+        if (feeds.isEmpty() || feeds.size() < pageSize) {
+            return ResponseEntity.ok(feeds);
+        }
+        Feed last = feeds.getLast();
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, last.getTimestamp() + ":" + last.getEventId())
+                .body(feeds);
     }
 
     /**
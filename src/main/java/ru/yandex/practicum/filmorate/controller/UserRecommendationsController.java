@@ -3,11 +3,13 @@ package ru.yandex.practicum.filmorate.controller;
 import jakarta.validation.constraints.Min;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRecommendations;
 import ru.yandex.practicum.filmorate.service.RecommendationsService;
 
 import java.util.Collection;
@@ -27,12 +29,15 @@ public class UserRecommendationsController {
      * Поиск фильмов для рекомендаций
      *
      * @param id - идентификатор пользователя
-     * @return - список фильмов друзей
+     * @return - список фильмов, время расчета рекомендаций передается в заголовке Last-Modified
      */
     @GetMapping("/users/{id}/recommendations")
-    public Collection<Film> findCommonFriends(@PathVariable("id") @Min(0) Integer id) {
+    public ResponseEntity<Collection<Film>> findCommonFriends(@PathVariable("id") @Min(0) Integer id) {
         log.info("Список рекомендаций для пользователя: {}, {}.", id);
-        return recommendationsService.getFilmsRecommendationsByUserId(id);
+        FilmRecommendations recommendations = recommendationsService.getFilmsRecommendationsByUserId(id);
+        return ResponseEntity.ok()
+                .lastModified(recommendations.getComputedAt())
+                .body(recommendations.getFilms());
     }
 
 
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.mapper;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.director.DirectorRegistry;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDictionary;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDictionary;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Преобразование строки фильма вместе с жанрами и режиссерами,
+ * собранными в массивы genres_ids и directors_ids.
+ * Наименования рейтинга MPA, жанров и имена режиссеров берутся из справочников
+ */
+@Component
+public class FilmDetailsRowMapper implements RowMapper<Film> {
+    private final FilmRowMapper filmRowMapper;
+    private final GenreDictionary genreDictionary;
+    private final DirectorRegistry directorRegistry;
+
+    public FilmDetailsRowMapper(MpaDictionary mpaDictionary, GenreDictionary genreDictionary,
+                                DirectorRegistry directorRegistry) {
+        this.filmRowMapper = new FilmRowMapper(mpaDictionary);
+        this.genreDictionary = genreDictionary;
+        this.directorRegistry = directorRegistry;
+    }
+
+    @Override
+    public Film mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+        Film film = filmRowMapper.mapRow(resultSet, rowNum);
+
+        for (Object genreId : toArray(resultSet.getArray("genres_ids"))) {
+            int id = ((Number) genreId).intValue();
+            film.addGenre(new Genre(id, genreDictionary.getName(id)));
+        }
+
+        for (Object directorId : toArray(resultSet.getArray("directors_ids"))) {
+            int id = ((Number) directorId).intValue();
+            film.addDirector(new Director(id, directorRegistry.getName(id)));
+        }
+
+        return film;
+    }
+
+    private static Object[] toArray(Array array) throws SQLException {
+        return array == null ? new Object[0] : (Object[]) array.getArray();
+    }
+}
@@ -4,23 +4,30 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.FilmDirector;
+import ru.yandex.practicum.filmorate.storage.director.DirectorRegistry;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
 /**
  * Чтене объектов связи фильма и режиссера
- * применяется к объединенным таблицам directors и films_directors
+ * применяется к таблице films_directors, имя режиссера берется из реестра
  */
 @Component
 public class FilmDirectorRowMapper implements RowMapper<FilmDirector> {
+    private final DirectorRegistry directorRegistry;
+
+    public FilmDirectorRowMapper(DirectorRegistry directorRegistry) {
+        this.directorRegistry = directorRegistry;
+    }
+
     @Override
     public FilmDirector mapRow(ResultSet resultSet, int rowNum) throws SQLException {
         FilmDirector filmDirector = new FilmDirector();
         filmDirector.setFilmId(resultSet.getInt("film_id"));
         Director director = new Director();
         director.setId(resultSet.getInt("director_id"));
-        director.setName(resultSet.getString("director_name"));
+        director.setName(directorRegistry.getName(director.getId()));
         filmDirector.setDirector(director);
         return filmDirector;
     }
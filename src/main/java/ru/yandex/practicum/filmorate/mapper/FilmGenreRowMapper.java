@@ -4,12 +4,22 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.FilmGenre;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDictionary;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+/**
+ * Преобразование строки таблицы films_genres. Наименование жанра берется из справочника
+ */
 @Component
 public class FilmGenreRowMapper implements RowMapper<FilmGenre> {
+    private final GenreDictionary genreDictionary;
+
+    public FilmGenreRowMapper(GenreDictionary genreDictionary) {
+        this.genreDictionary = genreDictionary;
+    }
+
     @Override
     public FilmGenre mapRow(ResultSet resultSet, int rowNum) throws SQLException {
         FilmGenre filmGenre = new FilmGenre();
@@ -17,7 +27,7 @@ public class FilmGenreRowMapper implements RowMapper<FilmGenre> {
 
         Genre genre = new Genre();
         genre.setId(resultSet.getInt("genre_id"));
-        genre.setName(resultSet.getString("genre_name"));
+        genre.setName(genreDictionary.getName(genre.getId()));
         filmGenre.setGenre(genre);
 
         return filmGenre;
@@ -4,12 +4,22 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDictionary;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+/**
+ * Преобразование строки таблицы films. Наименование рейтинга MPA берется из справочника
+ */
 @Component
 public class FilmRowMapper implements RowMapper<Film> {
+    private final MpaDictionary mpaDictionary;
+
+    public FilmRowMapper(MpaDictionary mpaDictionary) {
+        this.mpaDictionary = mpaDictionary;
+    }
+
     @Override
     public Film mapRow(ResultSet resultSet, int rowNum) throws SQLException {
         Film film = new Film();
@@ -21,7 +31,7 @@ public class FilmRowMapper implements RowMapper<Film> {
 
         Mpa mpa = new Mpa();
         mpa.setId(resultSet.getInt("mpa_id"));
-        mpa.setName(resultSet.getString("mpa_name"));
+        mpa.setName(mpaDictionary.getName(mpa.getId()));
         film.setMpa(mpa);
 
         return film;
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Рекомендованные пользователю фильмы и время расчета рекомендаций
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilmRecommendations {
+
+    private Collection<Film> films;
+    private Instant computedAt;
+}
@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.service;
 
+import java.util.Map;
+
 public interface DbAdminService {
 
 
@@ -11,4 +13,10 @@ public interface DbAdminService {
 
     String removeFilmsById(Integer id);
 
+    Map<String, Long> getFilmCacheStats();
+
+    String refreshDictionaries();
+
+    Map<String, Long> compactFeed();
+
 }
@@ -3,15 +3,16 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.exception.NotFoundException;
-import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.bdadmin.AdminDbStorage;
-import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.director.DirectorRegistry;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDictionary;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDictionary;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Класс реализации запросов к информации о пользователях
@@ -23,8 +24,18 @@ public class DbAdminServiceImpl implements DbAdminService {
 
 
     private final AdminDbStorage adminDbStorage;
-    private final FilmStorage filmStorage;
-    private final UserStorage userStorage;
+    private final PopularService popularService;
+    private final SearchService searchService;
+    private final RecommendationsService recommendationsService;
+    private final FeedService feedService;
+    private final FeedRetentionService feedRetentionService;
+    private final ReviewService reviewService;
+    private final ExistenceService existence;
+    private final UserService userService;
+    private final FilmCache filmCache;
+    private final GenreDictionary genreDictionary;
+    private final MpaDictionary mpaDictionary;
+    private final DirectorRegistry directorRegistry;
 
 
     /**
@@ -35,7 +46,13 @@ public class DbAdminServiceImpl implements DbAdminService {
     @Override
     public String removeAllUsers() {
         log.debug("Sevice: Удаляем всех пользователей.");
+        // события из очереди записи ленты не должны появиться после удаления
+        feedService.flush();
         adminDbStorage.removeAllUsers();
+        popularService.rebuildIndex();
+        recommendationsService.rebuildIndex();
+        reviewService.rebuildIndex();
+        userService.rebuildFriendsGraph();
         return "Все пользователи удалены.";
     }
 
@@ -49,6 +66,10 @@ public class DbAdminServiceImpl implements DbAdminService {
     public String removeAllFilms() {
         log.debug("Sevice: Удаляем все фильмы.");
         adminDbStorage.removeAllFilms();
+        popularService.rebuildIndex();
+        searchService.rebuildIndex();
+        recommendationsService.rebuildIndex();
+        reviewService.rebuildIndex();
         return "Все фильмы удалены.";
     }
 
@@ -61,9 +82,14 @@ public class DbAdminServiceImpl implements DbAdminService {
     @Override
     public String removeUsersById(Integer id) {
         log.debug("Sevice: Удаляем пользователя по ID");
-        User user = userStorage.getUserById(id)
-                .orElseThrow(() -> new NotFoundException("Не найден пользователь id=" + id));
+        existence.requireUser(id);
+        feedService.flush();
         adminDbStorage.removeUsersById(id);
+        // удаление "лайков" пользователя меняет популярность фильмов и рекомендации
+        popularService.rebuildIndex();
+        recommendationsService.rebuildIndex();
+        reviewService.rebuildIndex();
+        userService.rebuildFriendsGraph();
         List<User> userList = new ArrayList<>();
         return "";
 
@@ -77,11 +103,49 @@ public class DbAdminServiceImpl implements DbAdminService {
     @Override
     public String removeFilmsById(Integer id) {
         log.debug("Sevice: Удаляем фильм по ID");
-        Film film = filmStorage.getFilmById(id)
-                .orElseThrow(() -> new NotFoundException("Не найден фильм id=" + id));
+        existence.requireFilm(id);
         adminDbStorage.removeFilmsById(id);
+        popularService.onFilmRemoved(id);
+        searchService.onFilmRemoved(id);
+        recommendationsService.rebuildIndex();
+        reviewService.rebuildIndex();
         return "";
     }
 
+    /**
+     * Статистика кэша фильмов
+     *
+     * @return - размер, емкость, число попаданий, промахов и вытеснений
+     */
+    @Override
+    public Map<String, Long> getFilmCacheStats() {
+        return filmCache.getStats();
+    }
 
+    /**
+     * Повторное чтение справочников жанров, рейтингов MPA и реестра режиссеров из базы данных.
+     * Кэш фильмов очищается, так как содержит наименования из справочников.
+     *
+     * @return - сообщение о выполнении
+     */
+    @Override
+    public String refreshDictionaries() {
+        log.debug("Sevice: Обновляем справочники.");
+        genreDictionary.refresh();
+        mpaDictionary.refresh();
+        directorRegistry.refresh();
+        filmCache.clear();
+        return "Справочники обновлены.";
+    }
+
+    /**
+     * Внеплановая очистка ленты событий по настройкам хранения
+     *
+     * @return - число удаленных событий по каждому правилу
+     */
+    @Override
+    public Map<String, Long> compactFeed() {
+        log.debug("Sevice: Очищаем ленту событий.");
+        return feedRetentionService.compact();
+    }
 }
@@ -24,6 +24,9 @@ public class DirectorServiceImpl implements DirectorService {
     @Autowired
     private FilmStorage filmStorage;
 
+    @Autowired
+    private SearchService searchService;
+
     @Override
     public Collection<Director> findAllDirectors() {
         return directorStorage.findAll();
@@ -37,18 +40,22 @@ public class DirectorServiceImpl implements DirectorService {
 
     @Override
     public Director createDirector(Director director) {
-        return directorStorage.add(director);
+        Director newDirector = directorStorage.add(director);
+        searchService.onDirectorSaved(newDirector);
+        return newDirector;
     }
 
     @Override
     public Director updateDirector(Director director) {
         directorStorage.update(director);
+        searchService.onDirectorSaved(director);
         return director;
     }
 
     @Override
     public void deleteDirector(int id) {
         directorStorage.delete(id);
+        searchService.onDirectorRemoved(id);
     }
 
     /**
@@ -61,23 +68,11 @@ public class DirectorServiceImpl implements DirectorService {
     @Override
     public Collection<Film> getFilmsByDirectorId(final int directorId, String sortBy) {
 
-        final Director directorValid = directorStorage.findDirectorById(directorId)
+        directorStorage.findDirectorById(directorId)
                 .orElseThrow(() -> new NotFoundException("Не найден режиссер. id=" + directorId));
 
-        // получаем отсортированный список фильмов по рейтингу
-        Collection<Film> listFilms;
-
-        listFilms = filmStorage.findPopularFilms().stream()
-                .filter(film -> film.getDirectors().contains(directorValid))
-                .toList();
-
-        if ("year".equals(sortBy)) {
-            listFilms = listFilms.stream()
-                    .sorted((film1, film2) ->
-                            film1.getReleaseDate().compareTo(film2.getReleaseDate()))
-                    .toList();
-        }
-        return listFilms;
+        // фильмы режиссера отбираются и сортируются в базе данных
+        return filmStorage.findFilmsByDirectorId(directorId, sortBy);
     }
 
 }
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.service;
+
+public interface ExistenceService {
+
+    void requireFilm(Integer filmId);
+
+    void requireUser(Integer userId);
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Проверка существования фильмов и пользователей перед изменением связанных с ними данных.
+ * Проверка выполняется запросом по первичному ключу без чтения сведений об объекте,
+ * подтвержденное существование запоминается до конца обработки http запроса.
+ */
+@Service
+public class ExistenceServiceImpl implements ExistenceService {
+    private static final String EXISTING_ATTRIBUTE = ExistenceServiceImpl.class.getName() + ".existing";
+
+    private final FilmStorage films;
+    private final UserStorage users;
+
+    public ExistenceServiceImpl(FilmStorage films, UserStorage users) {
+        this.films = films;
+        this.users = users;
+    }
+
+    /**
+     * Проверка существования фильма
+     *
+     * @param filmId - идентификатор фильма
+     * @throws NotFoundException - если фильм не найден
+     */
+    @Override
+    public void requireFilm(Integer filmId) {
+        if (!exists("film:" + filmId, filmId, films::existsFilm)) {
+            throw new NotFoundException("Не найден фильм id=" + filmId);
+        }
+    }
+
+    /**
+     * Проверка существования пользователя
+     *
+     * @param userId - идентификатор пользователя
+     * @throws NotFoundException - если пользователь не найден
+     */
+    @Override
+    public void requireUser(Integer userId) {
+        if (!exists("user:" + userId, userId, users::existsUser)) {
+            throw new NotFoundException("Не найден пользователь id=" + userId);
+        }
+    }
+
+    // запоминается только существование: отсутствующий объект может быть создан тем же запросом
+    private boolean exists(String key, Integer id, Predicate<Integer> probe) {
+        Set<String> existing = requestMemo();
+        if (existing != null && existing.contains(key)) {
+            return true;
+        }
+        boolean found = id != null && probe.test(id);
+        if (found && existing != null) {
+            existing.add(key);
+        }
+        return found;
+    }
+
+    // набор подтвержденных объектов текущего http запроса, null - вне обработки запроса
+    @SuppressWarnings("unchecked")
+    private static Set<String> requestMemo() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Set<String> existing = (Set<String>) attributes.getAttribute(EXISTING_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST);
+        if (existing == null) {
+            existing = new HashSet<>();
+            attributes.setAttribute(EXISTING_ATTRIBUTE, existing, RequestAttributes.SCOPE_REQUEST);
+        }
+        return existing;
+    }
+}
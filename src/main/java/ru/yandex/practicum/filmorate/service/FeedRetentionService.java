@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.Map;
+
+public interface FeedRetentionService {
+
+    Map<String, Long> compact();
+}
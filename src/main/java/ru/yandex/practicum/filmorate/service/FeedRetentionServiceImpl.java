@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Очистка ленты событий.
+ * Удаляет события старше заданного возраста и события сверх заданного числа на пользователя,
+ * предварительно сохраняя их в сжатый архив (gzip, одно событие JSON на строку).
+ * События удаляются порциями короткими запросами, поэтому чтение ленты во время очистки не блокируется.
+ */
+@Slf4j
+@Service
+public class FeedRetentionServiceImpl implements FeedRetentionService {
+    private static final DateTimeFormatter ARCHIVE_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final FeedStorage feeds;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int maxAgeDays;
+    private final int maxEventsPerUser;
+    private final int chunkSize;
+    private final String archiveDir;
+
+    public FeedRetentionServiceImpl(FeedStorage feeds, ObjectMapper objectMapper,
+                                    @Value("${filmorate.feed.retention.enabled:false}") boolean enabled,
+                                    @Value("${filmorate.feed.retention.max-age-days:0}") int maxAgeDays,
+                                    @Value("${filmorate.feed.retention.max-events-per-user:0}") int maxEventsPerUser,
+                                    @Value("${filmorate.feed.retention.chunk-size:1000}") int chunkSize,
+                                    @Value("${filmorate.feed.retention.archive-dir:}") String archiveDir) {
+        this.feeds = feeds;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxAgeDays = maxAgeDays;
+        this.maxEventsPerUser = maxEventsPerUser;
+        this.chunkSize = chunkSize;
+        this.archiveDir = archiveDir;
+    }
+
+    /**
+     * Плановый запуск очистки, если она включена
+     */
+    @Scheduled(cron = "${filmorate.feed.retention.cron:0 0 3 * * *}")
+    public void scheduledCompact() {
+        if (enabled) {
+            compact();
+        }
+    }
+
+    /**
+     * Очистка ленты событий по возрасту и числу событий пользователя
+     *
+     * @return - число удаленных (и сохраненных в архив) событий по каждому правилу
+     */
+    @Override
+    public synchronized Map<String, Long> compact() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        try (Archive archive = new Archive()) {
+            long removedByAge = 0;
+            if (maxAgeDays > 0) {
+                long border = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(maxAgeDays);
+                removedByAge = removeChunks(() -> feeds.findOlderThan(border, chunkSize), archive);
+            }
+            long removedByCount = 0;
+            if (maxEventsPerUser > 0) {
+                for (Integer userId : feeds.findUsersWithFeedsOver(maxEventsPerUser)) {
+                    removedByCount += removeChunks(
+                            () -> feeds.findUserFeedsBeyond(userId, maxEventsPerUser, chunkSize), archive);
+                }
+            }
+            stats.put("removedByAge", removedByAge);
+            stats.put("removedByCount", removedByCount);
+        } catch (IOException e) {
+            throw new InternalServerException("Ошибка записи архива ленты событий: " + e.getMessage());
+        }
+        log.info("Очистка ленты событий: {}.", stats);
+        return stats;
+    }
+
+    // чтение, архивирование и удаление порций до исчерпания
+    private long removeChunks(Supplier<List<Feed>> nextChunk, Archive archive) throws IOException {
+        long removed = 0;
+        List<Feed> chunk = nextChunk.get();
+        while (!chunk.isEmpty()) {
+            archive.write(chunk);
+            removed += feeds.removeByIds(chunk.stream().map(Feed::getEventId).toList());
+            chunk = nextChunk.get();
+        }
+        return removed;
+    }
+
+    /**
+     * Архив удаляемых событий одного запуска очистки.
+     * Файл создается при записи первой порции, если задан каталог архива.
+     */
+    private class Archive implements AutoCloseable {
+        private OutputStream out;
+
+        void write(List<Feed> chunk) throws IOException {
+            if (archiveDir.isBlank()) {
+                return;
+            }
+            if (out == null) {
+                Path dir = Files.createDirectories(Path.of(archiveDir));
+                Path file = dir.resolve("feed-" + LocalDateTime.now().format(ARCHIVE_NAME_FORMAT) + ".ndjson.gz");
+                out = new GZIPOutputStream(Files.newOutputStream(file), true);
+                log.info("Архив ленты событий: {}.", file);
+            }
+            for (Feed feed : chunk) {
+                out.write(objectMapper.writeValueAsBytes(feed));
+                out.write('\n');
+            }
+            // порция должна быть записана в архив до удаления из базы данных
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+}
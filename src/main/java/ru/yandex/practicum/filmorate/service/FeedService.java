@@ -10,5 +10,9 @@ public interface FeedService {
 
     Collection<Feed> findAllFeeds(Integer userId);
 
+    Collection<Feed> findFeeds(Integer userId, String before, int limit);
+
     void createFeed(Integer userId, EventType event, Operation operation, Integer entityId);
+
+    void flush();
 }
\ No newline at end of file
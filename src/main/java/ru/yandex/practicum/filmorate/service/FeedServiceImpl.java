@@ -2,13 +2,12 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Feed;
-import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.model.enums.EventType;
 import ru.yandex.practicum.filmorate.model.enums.Operation;
+import ru.yandex.practicum.filmorate.storage.feed.FeedAppender;
 import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
-import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.Collection;
 
@@ -16,12 +15,14 @@ import java.util.Collection;
 @Service
 public class FeedServiceImpl implements FeedService {
 
-    private final UserStorage users;
+    private final ExistenceService existence;
     private final FeedStorage feeds;
+    private final FeedAppender appender;
 
-    public FeedServiceImpl(UserStorage users, FeedStorage feeds) {
-        this.users = users;
+    public FeedServiceImpl(ExistenceService existence, FeedStorage feeds, FeedAppender appender) {
+        this.existence = existence;
         this.feeds = feeds;
+        this.appender = appender;
     }
 
     /**
@@ -32,14 +33,48 @@ public class FeedServiceImpl implements FeedService {
      */
     @Override
     public Collection<Feed> findAllFeeds(Integer userId) {
-        User user = users.getUserById(userId).orElseThrow(() ->
-                new NotFoundException("Не найден пользователь id=" + userId));
+        existence.requireUser(userId);
 
+        appender.flush();
         return feeds.findAllByUserId(userId);
     }
 
+    /**
+     * Возвращает страницу ленты событий пользователя, начиная с самых новых событий.
+     *
+     * @param userId идентификатор пользователя
+     * @param before курсор "timestamp:eventId" последнего события предыдущей страницы, null - с начала ленты
+     * @param limit  размер страницы
+     * @return список событий в порядке убывания времени
+     */
+    @Override
+    public Collection<Feed> findFeeds(Integer userId, String before, int limit) {
+        if (limit <= 0) {
+            throw new ValidationException("Размер страницы должен быть положительным числом.");
+        }
+        Long beforeTimestamp = null;
+        Integer beforeEventId = null;
+        if (before != null) {
+            String[] cursor = before.split(":");
+            try {
+                if (cursor.length != 2) {
+                    throw new NumberFormatException(before);
+                }
+                beforeTimestamp = Long.parseLong(cursor[0]);
+                beforeEventId = Integer.parseInt(cursor[1]);
+            } catch (NumberFormatException e) {
+                throw new ValidationException("Некорректный курсор страницы ленты событий: " + before);
+            }
+        }
+        existence.requireUser(userId);
+
+        appender.flush();
+        return feeds.findByUserId(userId, beforeTimestamp, beforeEventId, limit);
+    }
+
     /**
      * Создает запись в ленте событий.
+     * Событие записывается асинхронно пакетами, время события назначается при постановке в очередь.
      *
      * @param userId    идентификатор пользователя, совершившего событие
      * @param event     тип события
@@ -48,11 +83,18 @@ public class FeedServiceImpl implements FeedService {
      */
     public void createFeed(Integer userId, EventType event, Operation operation, Integer entityId) {
         Feed feed = new Feed();
-        feed.setTimestamp(System.currentTimeMillis());
         feed.setUserId(userId);
         feed.setEventType(event);
         feed.setOperation(operation);
         feed.setEntityId(entityId);
-        feeds.create(feed);
+        appender.append(feed);
+    }
+
+    /**
+     * Ожидание записи всех ранее созданных событий
+     */
+    @Override
+    public void flush() {
+        appender.flush();
     }
 }
@@ -3,23 +3,31 @@ package ru.yandex.practicum.filmorate.service;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface FilmService {
 
     Collection<Film> findAllFilms();
 
+    Collection<Film> findFilms(Integer after, int limit);
+
+    void exportFilms(Consumer<Film> consumer);
+
     Film getFilmById(Integer id);
 
     Film addNewFilm(Film film);
 
+    List<Film> addFilms(List<Film> newFilms);
+
     Film updateFilm(Film updFilm);
 
     String onDelete();
 
-    Integer addNewLike(Integer filmId, Integer userId);
+    Map<String, String> addNewLike(Integer filmId, Integer userId);
 
-    Integer removeLike(Integer filmId, Integer userId);
+    Map<String, String> removeLike(Integer filmId, Integer userId);
 
     Collection<Film> findPopularFilms(int count);
 
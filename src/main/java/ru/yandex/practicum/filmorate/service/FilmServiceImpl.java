@@ -1,5 +1,9 @@
 package ru.yandex.practicum.filmorate.service;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
@@ -8,26 +12,46 @@ import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.enums.EventType;
 import ru.yandex.practicum.filmorate.model.enums.Operation;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.*;
-
-import static java.lang.Math.min;
+import java.util.function.Consumer;
 
 /**
  * Класс реализации запросов к информации о фильмах
  */
+@Slf4j
 @Service
 public class FilmServiceImpl implements FilmService {
 
     private final FilmStorage films;
-    private final UserStorage users;
     private final FeedService feeds;
+    private final PopularService popular;
+    private final SearchService search;
+    private final RecommendationsService recommendations;
+    private final ReviewService reviews;
+    private final ExistenceService existence;
 
-    public FilmServiceImpl(FilmStorage filmStorage, UserStorage users, FeedService feeds) {
+    public FilmServiceImpl(FilmStorage filmStorage, FeedService feeds,
+                           PopularService popular, SearchService search,
+                           RecommendationsService recommendations, ReviewService reviews,
+                           ExistenceService existence) {
         this.films = filmStorage;
-        this.users = users;
         this.feeds = feeds;
+        this.popular = popular;
+        this.search = search;
+        this.recommendations = recommendations;
+        this.reviews = reviews;
+        this.existence = existence;
+    }
+
+    /**
+     * Сверка счетчиков "лайков" фильмов с таблицей likes при запуске приложения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public void reconcileLikesCount() {
+        int filmsFixed = films.rebuildLikesCount();
+        log.info("Сверка счетчиков \"лайков\": исправлено фильмов - {}.", filmsFixed);
     }
 
     /**
@@ -40,6 +64,31 @@ public class FilmServiceImpl implements FilmService {
         return films.findAllFilms();
     }
 
+    /**
+     * Метод постраничного чтения фильмов
+     *
+     * @param after - идентификатор последнего фильма предыдущей страницы, null - с начала списка
+     * @param limit - размер страницы
+     * @return - список фильмов
+     */
+    @Override
+    public Collection<Film> findFilms(Integer after, int limit) {
+        if (limit <= 0) {
+            throw new ValidationException("Размер страницы должен быть положительным числом.");
+        }
+        return films.findFilms(after, limit);
+    }
+
+    /**
+     * Метод выгрузки всех фильмов по одному
+     *
+     * @param consumer - получатель фильмов
+     */
+    @Override
+    public void exportFilms(Consumer<Film> consumer) {
+        films.exportFilms(consumer);
+    }
+
     /**
      * Метод поиска фильма по идентификатору
      *
@@ -60,13 +109,42 @@ public class FilmServiceImpl implements FilmService {
      */
     @Override
     public Film addNewFilm(Film film) {
-        Optional<Film> existingFilm = films.findAllFilms().stream()
-                .filter(film1 -> film1.equals(film))
-                .findFirst();
-        if (existingFilm.isPresent()) {
-            throw new ValidationException("Фильм уже существует: " + existingFilm.get());
+        Optional<Integer> existingFilmId = films.findDuplicateFilmId(film);
+        if (existingFilmId.isPresent()) {
+            throw new ValidationException("Фильм уже существует: id=" + existingFilmId.get());
+        }
+        Film newFilm = films.addNewFilm(film);
+        popular.onFilmSaved(newFilm);
+        search.onFilmSaved(newFilm);
+        return newFilm;
+    }
+
+    /**
+     * Метод пакетного добавления фильмов.
+     * Если хотя бы один фильм уже существует или повторяется в списке, не добавляется ни один.
+     *
+     * @param newFilms - список фильмов для добавления
+     * @return - список подтвержденных объектов
+     */
+    @Override
+    public List<Film> addFilms(List<Film> newFilms) {
+        Set<Film> batchFilms = new HashSet<>();
+        for (Film film : newFilms) {
+            if (!batchFilms.add(film)) {
+                throw new ValidationException("Фильм повторяется в списке: " + film.getName());
+            }
+            Optional<Integer> existingFilmId = films.findDuplicateFilmId(film);
+            if (existingFilmId.isPresent()) {
+                throw new ValidationException("Фильм уже существует: id=" + existingFilmId.get());
+            }
+        }
+        List<Film> addedFilms = films.addFilms(newFilms);
+        for (Film film : addedFilms) {
+            popular.onFilmSaved(film);
+            search.onFilmSaved(film);
         }
-        return films.addNewFilm(film);
+        log.info("Добавлено фильмов: {}.", addedFilms.size());
+        return addedFilms;
     }
 
     /**
@@ -103,6 +181,8 @@ public class FilmServiceImpl implements FilmService {
             film.setDirectors(updFilm.getDirectors());
 
         films.updateFilm(film);
+        popular.onFilmSaved(film);
+        search.onFilmSaved(film);
 
         return films.getFilmById(id).orElseThrow(() ->
                 new InternalServerException("Ошибка обновления фильма id=" + id));
@@ -116,41 +196,60 @@ public class FilmServiceImpl implements FilmService {
     @Override
     public String onDelete() {
         films.removeAllFilms();
+        popular.rebuildIndex();
+        search.rebuildIndex();
+        recommendations.rebuildIndex();
+        reviews.rebuildIndex();
         return "Все фильмы удалены.";
     }
 
+    /**
+     * Добавление "лайка" к фильму
+     *
+     * @param filmId - идентификатор фильма
+     * @param userId - идентификатор пользователя
+     * @return - название фильма и число "лайков"
+     */
     @Override
-    public Integer addNewLike(Integer filmId, Integer userId) {
-        films.getFilmById(filmId).orElseThrow(() ->
+    public Map<String, String> addNewLike(Integer filmId, Integer userId) {
+        Film film = films.getFilmById(filmId).orElseThrow(() ->
                 new NotFoundException("Не найден фильм id=" + filmId));
-        users.getUserById(userId).orElseThrow(() ->
-                new NotFoundException("Не найден пользователь id =" + userId));
+        existence.requireUser(userId);
 
         Integer likeCount = films.addNewLike(filmId, userId);
+        popular.onLikesChanged(filmId);
+        recommendations.onLikeChanged(userId, filmId);
 
         feeds.createFeed(userId, EventType.LIKE, Operation.ADD, filmId);
 
-        return likeCount;
+        return rankResponse(film, likeCount);
     }
 
+    /**
+     * Удаление "лайка" у фильма
+     *
+     * @param filmId - идентификатор фильма
+     * @param userId - идентификатор пользователя
+     * @return - название фильма и число "лайков"
+     */
     @Override
-    public Integer removeLike(Integer filmId, Integer userId) {
+    public Map<String, String> removeLike(Integer filmId, Integer userId) {
         Film film = films.getFilmById(filmId).orElseThrow(() ->
                 new NotFoundException("Не найден фильм id=" + filmId));
-        users.getUserById(userId).orElseThrow(() ->
-                new NotFoundException("Не найден пользователь id=" + userId));
+        existence.requireUser(userId);
 
         Integer likeCount = films.removeLike(filmId, userId);
+        popular.onLikesChanged(filmId);
+        recommendations.onLikeChanged(userId, filmId);
 
         feeds.createFeed(userId, EventType.LIKE, Operation.REMOVE, filmId);
 
-        return likeCount;
+        return rankResponse(film, likeCount);
     }
 
     @Override
     public Collection<Film> findPopularFilms(int count) {
-        List<Film> fP = new ArrayList<>(films.findPopularFilms());
-        return fP.subList(0, min(fP.size(), count));
+        return films.findPopularFilms(null, null, count);
     }
 
     @Override
@@ -158,9 +257,14 @@ public class FilmServiceImpl implements FilmService {
         Film film = films.getFilmById(filmId).orElseThrow(() ->
                 new NotFoundException("Не найден фильм id=" + filmId));
 
+        return rankResponse(film, films.getFilmRank(filmId));
+    }
+
+    // ответ с названием фильма и числом "лайков"
+    private static Map<String, String> rankResponse(Film film, Integer likeCount) {
         Map<String, String> response = new HashMap<>();
         response.put("Фильм ", film.getName());
-        response.put("лайков", films.getFilmRank(filmId).toString());
+        response.put("лайков", likeCount.toString());
         return response;
     }
 
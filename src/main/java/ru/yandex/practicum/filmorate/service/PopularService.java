@@ -7,4 +7,16 @@ import java.util.Collection;
 public interface PopularService {
 
     Collection<Film> getPopular(Integer year, Integer genreId, Integer count);
+
+    // добавление или изменение фильма в индексе популярности
+    void onFilmSaved(Film film);
+
+    // обновление числа "лайков" фильма в индексе популярности после его изменения в базе данных
+    void onLikesChanged(Integer filmId);
+
+    // удаление фильма из индекса популярности
+    void onFilmRemoved(Integer filmId);
+
+    // полное перестроение индекса популярности
+    void rebuildIndex();
 }
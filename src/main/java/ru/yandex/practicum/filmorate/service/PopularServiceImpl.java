@@ -1,22 +1,31 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 
 import java.util.Collection;
 import java.util.Optional;
 
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class PopularServiceImpl implements PopularService {
 
     private final FilmStorage films;
+    private final FilmPopularityIndex popularityIndex;
 
     /**
      * Возвращает список самых популярных фильмов.
+     * Отбор выполняется по индексу популярности в памяти,
+     * из базы данных читаются только отобранные фильмы.
      *
      * @param year    год, по которому нужно отфильтровать фильмы
      * @param genreId идентификатор жанра, по которому нужно отфильтровать фильмы
@@ -26,19 +35,38 @@ public class PopularServiceImpl implements PopularService {
      */
     @Override
     public Collection<Film> getPopular(Integer year, Integer genreId, Integer count) {
+        if (!popularityIndex.isReady()) {
+            // пока индекс не построен, отбор выполняется запросом к базе данных
+            return films.findPopularFilms(year, genreId, count);
+        }
+        int limit = Optional.ofNullable(count).orElse(Integer.MAX_VALUE);
+        return films.findFilmsByIds(popularityIndex.findPopular(year, genreId, limit));
+    }
 
-        Collection<Film> listFilms = films.findPopularFilms();
+    @Override
+    public void onFilmSaved(Film film) {
+        popularityIndex.putFilm(film);
+    }
 
-        listFilms = listFilms.stream()
-                .filter(film -> {
-                    boolean yearMatch = year == null || film.getReleaseDate().getYear() == year;
-                    boolean genreMatch = genreId == null || film.getGenres()
-                            .stream().anyMatch(genre -> genre.getId() == genreId);
-                    return yearMatch && genreMatch;
-                })
-                .limit(Optional.ofNullable(count).orElse(Integer.MAX_VALUE))
-                .toList();
+    @Override
+    public void onLikesChanged(Integer filmId) {
+        popularityIndex.refreshLikes(filmId, () -> films.findLikesCount(filmId));
+    }
 
-        return listFilms;
+    @Override
+    public void onFilmRemoved(Integer filmId) {
+        popularityIndex.removeFilm(filmId);
+    }
+
+    /**
+     * Построение индекса популярности по базе данных.
+     * При запуске выполняется после сверки счетчиков "лайков".
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(2)
+    public void rebuildIndex() {
+        popularityIndex.rebuild(films::findAllFilms, films::findLikesCounts);
+        log.info("Индекс популярности фильмов построен.");
     }
 }
@@ -1,10 +1,14 @@
 package ru.yandex.practicum.filmorate.service;
 
-import ru.yandex.practicum.filmorate.model.Film;
-
-import java.util.Collection;
+import ru.yandex.practicum.filmorate.model.FilmRecommendations;
 
 public interface RecommendationsService {
 
-    Collection<Film> getFilmsRecommendationsByUserId(int userId);
+    FilmRecommendations getFilmsRecommendationsByUserId(int userId);
+
+    void onLikeChanged(Integer userId, Integer filmId);
+
+    void rebuildIndex();
+
+    void refreshRecommendations();
 }
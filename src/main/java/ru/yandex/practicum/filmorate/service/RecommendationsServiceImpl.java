@@ -1,22 +1,75 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.storage.recommendations.RecommendationsDbStorage;
+import ru.yandex.practicum.filmorate.model.FilmRecommendations;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.recommendations.LikesMatrix;
+import ru.yandex.practicum.filmorate.storage.recommendations.RecommendationsStorage;
 
-import java.util.Collection;
+import java.time.Instant;
 
+@Slf4j
 @Service
 @AllArgsConstructor
 public class RecommendationsServiceImpl implements RecommendationsService {
 
-    private final RecommendationsDbStorage recommendationsDbStorage;
+    private final RecommendationsStorage recommendationsStorage;
+    private final FilmStorage films;
+    private final LikesMatrix likesMatrix;
 
+    /**
+     * Рекомендации фильмов для пользователя.
+     * Отбор выполняется по матрице "лайков" в памяти, как правило заранее фоновым пересчетом,
+     * из базы данных читаются только отобранные фильмы.
+     *
+     * @param userId - идентификатор пользователя
+     * @return - список рекомендованных фильмов и время расчета рекомендаций
+     */
+    @Override
+    public FilmRecommendations getFilmsRecommendationsByUserId(int userId) {
+        if (!likesMatrix.isReady()) {
+            // пока матрица не построена, отбор выполняется запросом к базе данных
+            return new FilmRecommendations(recommendationsStorage.getFilmsRecommendationsByUserId(userId),
+                    Instant.now());
+        }
+        LikesMatrix.Recommendation recommendation = likesMatrix.recommend(userId);
+        return new FilmRecommendations(films.findFilmsByIds(recommendation.filmsIds()),
+                recommendation.computedAt());
+    }
 
     @Override
-    public Collection<Film> getFilmsRecommendationsByUserId(int userId) {
+    public void onLikeChanged(Integer userId, Integer filmId) {
+        likesMatrix.refreshLike(userId, filmId, () -> recommendationsStorage.existsLike(userId, filmId));
+    }
 
-        return recommendationsDbStorage.getFilmsRecommendationsByUserId(userId);
+    /**
+     * Построение матрицы "лайков" по базе данных
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        likesMatrix.rebuild(recommendationsStorage::findAllLikes);
+        log.info("Матрица \"лайков\" для рекомендаций построена.");
+    }
+
+    /**
+     * Фоновый пересчет рекомендаций пользователей, затронутых изменением "лайков"
+     * с момента предыдущего запуска
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.refresh-delay-ms:1000}")
+    public void refreshRecommendations() {
+        if (!likesMatrix.isReady()) {
+            return;
+        }
+        int refreshed = likesMatrix.refreshDirty();
+        if (refreshed > 0) {
+            log.debug("Пересчитаны рекомендации {} пользователей.", refreshed);
+        }
     }
 }
@@ -14,7 +14,7 @@ public interface ReviewService {
 
     Review getReviewById(Integer id);
 
-    Collection<Review> getReviews(Integer filmId, Integer count);
+    Collection<Review> getReviews(Integer filmId, Integer count, String after);
 
     Review addLike(Integer reviewIdId, Integer userId);
 
@@ -22,4 +22,6 @@ public interface ReviewService {
 
     Review deleteFeedback(Integer reviewId, Integer userId);
 
+    void rebuildIndex();
+
 }
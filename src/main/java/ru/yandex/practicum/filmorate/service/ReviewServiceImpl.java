@@ -1,25 +1,29 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.model.enums.EventType;
 import ru.yandex.practicum.filmorate.model.enums.Operation;
-import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.review.ReviewLeaderboard;
 import ru.yandex.practicum.filmorate.storage.review.ReviewStorage;
-import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.Collection;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ReviewServiceImpl implements ReviewService {
 
-    private final FilmStorage films;
-    private final UserStorage users;
+    private final ExistenceService existence;
     private final ReviewStorage reviews;
     private final FeedService feeds;
+    private final ReviewLeaderboard leaderboard;
 
     /**
      * Добавляет новый отзыв в базу данных.
@@ -30,13 +34,10 @@ public class ReviewServiceImpl implements ReviewService {
      */
     @Override
     public Review addReview(Review review) {
-        if (films.getFilmById(review.getFilmId()).isEmpty()) {
-            throw new NotFoundException("Не найден фильм с id=" + review.getFilmId());
-        }
-        if (users.getUserById(review.getUserId()).isEmpty()) {
-            throw new NotFoundException("Не найден пользователь с id=" + review.getUserId());
-        }
+        existence.requireFilm(review.getFilmId());
+        existence.requireUser(review.getUserId());
         Review result = reviews.addReview(review);
+        refreshLeaderboard(result.getReviewId());
         feeds.createFeed(result.getUserId(), EventType.REVIEW, Operation.ADD,
                 result.getReviewId());
 
@@ -58,6 +59,7 @@ public class ReviewServiceImpl implements ReviewService {
 
         Review reviewDeleted = reviews.getReviewById(id).get();
         reviews.deleteReview(id);
+        refreshLeaderboard(id);
 
         feeds.createFeed(reviewDeleted.getUserId(), EventType.REVIEW,
                 Operation.REMOVE, reviewDeleted.getReviewId());
@@ -76,13 +78,10 @@ public class ReviewServiceImpl implements ReviewService {
         if (reviews.getReviewById(review.getReviewId()).isEmpty()) {
             throw new NotFoundException("Не найден отзыв с id=" + review.getReviewId());
         }
-        if (films.getFilmById(review.getFilmId()).isEmpty()) {
-            throw new NotFoundException("Не найден фильм с id=" + review.getFilmId());
-        }
-        if (users.getUserById(review.getUserId()).isEmpty()) {
-            throw new NotFoundException("Не найден пользователь с id=" + review.getUserId());
-        }
+        existence.requireFilm(review.getFilmId());
+        existence.requireUser(review.getUserId());
         Review result = reviews.updateReview(review);
+        refreshLeaderboard(result.getReviewId());
 
         feeds.createFeed(result.getUserId(), EventType.REVIEW, Operation.UPDATE,
                 result.getReviewId());
@@ -105,14 +104,36 @@ public class ReviewServiceImpl implements ReviewService {
 
     /**
      * Возвращает список отзывов для фильма.
+     * Отзывы читаются из рейтинга в памяти, пока он не построен - из базы данных.
      *
      * @param filmId id фильма для получения отзывов, если передать null - вернет все фильмы.
      * @param count  количество отзывов для каждого фильма, если передать null - вернет 10 отзывов.
+     * @param after  курсор "useful:reviewId" последнего отзыва предыдущей страницы, null - с начала списка.
      * @return Коллекция отзывов для указанного фильма.
      */
     @Override
-    public Collection<Review> getReviews(Integer filmId, Integer count) {
-        return reviews.getReviews(filmId, count);
+    public Collection<Review> getReviews(Integer filmId, Integer count, String after) {
+        if (count != null && count <= 0) {
+            throw new ValidationException("Количество отзывов должно быть положительным числом.");
+        }
+        Integer afterUseful = null;
+        Integer afterReviewId = null;
+        if (after != null) {
+            String[] cursor = after.split(":");
+            try {
+                if (cursor.length != 2) {
+                    throw new NumberFormatException(after);
+                }
+                afterUseful = Integer.parseInt(cursor[0]);
+                afterReviewId = Integer.parseInt(cursor[1]);
+            } catch (NumberFormatException e) {
+                throw new ValidationException("Некорректный курсор страницы отзывов: " + after);
+            }
+        }
+        if (!leaderboard.isReady()) {
+            return reviews.getReviews(filmId, count, afterUseful, afterReviewId);
+        }
+        return leaderboard.top(filmId, count, afterUseful, afterReviewId);
     }
 
     /**
@@ -124,13 +145,11 @@ public class ReviewServiceImpl implements ReviewService {
      */
     @Override
     public Review addLike(Integer reviewId, Integer userId) {
-        if (reviews.getReviewById(reviewId).isEmpty()) {
-            throw new NotFoundException("Не найден отзыв с id=" + reviewId);
-        }
-        if (users.getUserById(userId).isEmpty()) {
-            throw new NotFoundException("Не найден пользователь с id=" + userId);
-        }
-        return reviews.addLike(reviewId, userId);
+        // существование отзыва и пользователя проверяется хранилищем в транзакции оценки;
+        // рейтинг в памяти обновляется после ее фиксации, поэтому отмененная оценка в него не попадает
+        Review result = reviews.addLike(reviewId, userId);
+        refreshLeaderboard(reviewId);
+        return result;
     }
 
     /**
@@ -142,13 +161,9 @@ public class ReviewServiceImpl implements ReviewService {
      */
     @Override
     public Review addDisLike(Integer reviewId, Integer userId) {
-        if (reviews.getReviewById(reviewId).isEmpty()) {
-            throw new NotFoundException("Не найден отзыв с id=" + reviewId);
-        }
-        if (users.getUserById(userId).isEmpty()) {
-            throw new NotFoundException("Не найден пользователь с id=" + userId);
-        }
-        return reviews.addDisLike(reviewId, userId);
+        Review result = reviews.addDisLike(reviewId, userId);
+        refreshLeaderboard(reviewId);
+        return result;
     }
 
     /**
@@ -160,11 +175,27 @@ public class ReviewServiceImpl implements ReviewService {
      */
     @Override
     public Review deleteFeedback(Integer reviewId, Integer userId) {
-        if (reviews.containsFeedback(reviewId, userId)) {
-            return reviews.deleteFeedback(reviewId, userId);
-        } else {
-            throw new NotFoundException("Для отзыва с id=" + reviewId +
-                    " не найдена оценка пользователя с id=" + userId);
+        Review result = reviews.deleteFeedback(reviewId, userId);
+        refreshLeaderboard(reviewId);
+        return result;
+    }
+
+    /**
+     * Проверка рейтинга полезности отзывов по оценкам пользователей и построение рейтинга в памяти
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        int repaired = reviews.repairUseful();
+        if (repaired > 0) {
+            log.warn("Исправлен рейтинг полезности {} отзывов, не соответствовавший оценкам пользователей.",
+                    repaired);
         }
+        leaderboard.rebuild(reviews::findAllReviews);
+        log.info("Рейтинг отзывов построен.");
+    }
+
+    private void refreshLeaderboard(Integer reviewId) {
+        leaderboard.refresh(reviewId, () -> reviews.getReviewById(reviewId));
     }
 }
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.service;
 
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.Collection;
@@ -8,4 +9,18 @@ public interface SearchService {
 
     Collection<Film> searchFilms(String stringSearch, Boolean titleSearch, Boolean directorSearch);
 
+    // добавление или изменение фильма в поисковом индексе
+    void onFilmSaved(Film film);
+
+    // удаление фильма из поискового индекса
+    void onFilmRemoved(Integer filmId);
+
+    // добавление или изменение режиссера в поисковом индексе
+    void onDirectorSaved(Director director);
+
+    // удаление режиссера из поискового индекса
+    void onDirectorRemoved(int directorId);
+
+    // полное перестроение поискового индекса
+    void rebuildIndex();
 }
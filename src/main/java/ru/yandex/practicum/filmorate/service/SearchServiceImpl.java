@@ -1,20 +1,34 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class SearchServiceImpl implements SearchService {
 
     private final FilmStorage films;
+    private final DirectorStorage directors;
+    private final FilmSearchIndex searchIndex;
+    private final FilmPopularityIndex popularityIndex;
 
     /**
      * Возвращает список фильмов, отфильтрованных по названию и/или имени режиссера.
+     * Фильмы отбираются по поисковому индексу и упорядочиваются по популярности.
      *
      * @param stringSearch   строка поиска
      * @param titleSearch    флаг, указывающий, нужно ли искать по названию фильма
@@ -23,21 +37,62 @@ public class SearchServiceImpl implements SearchService {
      */
     @Override
     public Collection<Film> searchFilms(String stringSearch, Boolean titleSearch, Boolean directorSearch) {
+        if (!searchIndex.isReady()) {
+            return searchFilmsInStorage(stringSearch, titleSearch, directorSearch);
+        }
 
-        // получаем отсортированный список фильмов по рейтингу
-        Collection<Film> listFilms = films.findPopularFilms();
+        // упорядочиваем найденные фильмы по убыванию "лайков", затем по идентификатору
+        List<Integer> filmsIds = searchIndex.search(stringSearch, titleSearch, directorSearch).stream()
+                .sorted(Comparator.comparingInt(popularityIndex::getLikes).reversed()
+                        .thenComparing(Comparator.naturalOrder()))
+                .toList();
+        return films.findFilmsByIds(filmsIds);
+    }
+
+    @Override
+    public void onFilmSaved(Film film) {
+        searchIndex.putFilm(film);
+    }
+
+    @Override
+    public void onFilmRemoved(Integer filmId) {
+        searchIndex.removeFilm(filmId);
+    }
+
+    @Override
+    public void onDirectorSaved(Director director) {
+        searchIndex.putDirector(director);
+    }
 
-        // фильтруем фильмы по названию и имени режиссера
-        listFilms = listFilms.stream()
+    @Override
+    public void onDirectorRemoved(int directorId) {
+        searchIndex.removeDirector(directorId);
+    }
+
+    /**
+     * Построение поискового индекса по базе данных
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        searchIndex.rebuild(films.findAllFilms(), directors.findAll());
+        log.info("Поисковый индекс фильмов построен.");
+    }
+
+    /**
+     * Поиск просмотром всех фильмов - пока индекс не построен
+     */
+    private Collection<Film> searchFilmsInStorage(String stringSearch, Boolean titleSearch, Boolean directorSearch) {
+        String text = stringSearch.toLowerCase();
+        return films.findPopularFilms().stream()
                 .filter(film -> {
-                    boolean nameMatch = titleSearch && film.getName().toLowerCase().contains(stringSearch.toLowerCase());
+                    boolean nameMatch = titleSearch && film.getName().toLowerCase().contains(text);
                     boolean directorMatch = directorSearch && film.getDirectors()
                             .stream().anyMatch(director ->
                                     director != null && director.getName() != null && director.getName()
-                                            .toLowerCase().contains(stringSearch.toLowerCase()));
+                                            .toLowerCase().contains(text));
                     return nameMatch || directorMatch;
                 })
                 .toList();
-        return listFilms;
     }
 }
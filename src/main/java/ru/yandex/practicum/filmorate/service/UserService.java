@@ -8,6 +8,8 @@ public interface UserService {
 
     Collection<User> findAllUsers();
 
+    Collection<User> findUsers(Integer after, int limit);
+
     User addNewUser(User user);
 
     User getUserById(Integer id);
@@ -23,4 +25,8 @@ public interface UserService {
     Collection<User> getUserFriends(Integer userId);
 
     Collection<User> getCommonFriends(Integer id1, Integer id2);
+
+    Collection<User> getFriendSuggestions(Integer userId, int count);
+
+    void rebuildFriendsGraph();
 }
\ No newline at end of file
@@ -1,12 +1,15 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.model.enums.EventType;
 import ru.yandex.practicum.filmorate.model.enums.Operation;
+import ru.yandex.practicum.filmorate.storage.user.FriendsGraph;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.Collection;
@@ -20,10 +23,20 @@ public class UserServiceImpl implements UserService {
 
     private final UserStorage users;
     private final FeedService feeds;
-
-    public UserServiceImpl(UserStorage users, FeedService feeds) {
+    private final PopularService popular;
+    private final RecommendationsService recommendations;
+    private final ExistenceService existence;
+    private final FriendsGraph friendsGraph;
+
+    public UserServiceImpl(UserStorage users, FeedService feeds, PopularService popular,
+                           RecommendationsService recommendations, ExistenceService existence,
+                           FriendsGraph friendsGraph) {
         this.users = users;
         this.feeds = feeds;
+        this.popular = popular;
+        this.recommendations = recommendations;
+        this.existence = existence;
+        this.friendsGraph = friendsGraph;
     }
 
     /**
@@ -36,6 +49,21 @@ public class UserServiceImpl implements UserService {
         return users.findAllUsers();
     }
 
+    /**
+     * Метод постраничного чтения пользователей
+     *
+     * @param after - идентификатор последнего пользователя предыдущей страницы, null - с начала списка
+     * @param limit - размер страницы
+     * @return - список пользователей
+     */
+    @Override
+    public Collection<User> findUsers(Integer after, int limit) {
+        if (limit <= 0) {
+            throw new ValidationException("Размер страницы должен быть положительным числом.");
+        }
+        return users.findUsers(after, limit);
+    }
+
     /**
      * Метод добавления нового пользователя.
      *
@@ -49,10 +77,7 @@ public class UserServiceImpl implements UserService {
         if (user.getName() == null | user.getName().isBlank()) {
             user.setName(user.getLogin());
         }
-        if (users.findAllUsers().contains(user)) {
-            throw new ValidationException("Пользователь уже существует "
-                    + user.getEmail());
-        }
+        // повторный email отклоняется хранилищем исключением ValidationException
         return users.addNewUser(user);
     }
 
@@ -110,6 +135,9 @@ public class UserServiceImpl implements UserService {
     public String removeAllUsers() {
         log.debug("Sevice: Удаляем всех пользователей.");
         users.removeAllUsers();
+        popular.rebuildIndex();
+        recommendations.rebuildIndex();
+        rebuildFriendsGraph();
         return "Все пользователи удалены.";
     }
 
@@ -122,13 +150,12 @@ public class UserServiceImpl implements UserService {
      */
     @Override
     public void addFriends(Integer id1, Integer id2) {
-        users.getUserById(id1).orElseThrow(() ->
-                new NotFoundException("Не найден пользователь id=" + id1));
-        users.getUserById(id2).orElseThrow(() ->
-                new NotFoundException("Не найден пользователь id=" + id2));
+        existence.requireUser(id1);
+        existence.requireUser(id2);
 
         // Добавление в друзья
         users.addFriend(id1, id2);
+        friendsGraph.refreshFriend(id1, id2, () -> users.existsFriend(id1, id2));
 
         feeds.createFeed(id1, EventType.FRIEND, Operation.ADD, id2);
     }
@@ -142,12 +169,11 @@ public class UserServiceImpl implements UserService {
      */
     @Override
     public void breakUpFriends(Integer id1, Integer id2) {
-        users.getUserById(id1).orElseThrow(() ->
-                new NotFoundException("Не найден пользователь id=" + id1));
-        users.getUserById(id2).orElseThrow(() ->
-                new NotFoundException("Не найден пользователь id=" + id2));
+        existence.requireUser(id1);
+        existence.requireUser(id2);
 
         users.breakUpFriends(id1, id2);
+        friendsGraph.refreshFriend(id1, id2, () -> users.existsFriend(id1, id2));
 
         feeds.createFeed(id1, EventType.FRIEND, Operation.REMOVE, id2);
     }
@@ -160,10 +186,12 @@ public class UserServiceImpl implements UserService {
      */
     @Override
     public Collection<User> getUserFriends(Integer userId) {
-        users.getUserById(userId).orElseThrow(() ->
-                new NotFoundException("Не найден пользователь id=" + userId));
+        existence.requireUser(userId);
 
-        return users.getUserFriends(userId);
+        if (!friendsGraph.isReady()) {
+            return users.getUserFriends(userId);
+        }
+        return users.findUsersByIds(friendsGraph.friends(userId));
     }
 
     /**
@@ -175,11 +203,42 @@ public class UserServiceImpl implements UserService {
      */
     @Override
     public Collection<User> getCommonFriends(Integer id1, Integer id2) {
-        users.getUserById(id1).orElseThrow(() ->
-                new NotFoundException("Не найден пользователь id=" + id1));
-        users.getUserById(id2).orElseThrow(() ->
-                new NotFoundException("Не найден пользователь id=" + id2));
+        existence.requireUser(id1);
+        existence.requireUser(id2);
+
+        if (!friendsGraph.isReady()) {
+            return users.getCommonFriends(id1, id2);
+        }
+        return users.findUsersByIds(friendsGraph.commonFriends(id1, id2));
+    }
 
-        return users.getCommonFriends(id1, id2);
+    /**
+     * Предложения друзей: друзья друзей пользователя, которые еще не являются его друзьями
+     *
+     * @param userId - идентификатор пользователя
+     * @param count  - максимальное число предложений
+     * @return - список пользователей в порядке убывания числа общих друзей
+     */
+    @Override
+    public Collection<User> getFriendSuggestions(Integer userId, int count) {
+        if (count <= 0) {
+            throw new ValidationException("Число предложений должно быть положительным числом.");
+        }
+        existence.requireUser(userId);
+        if (!friendsGraph.isReady()) {
+            // пока граф не построен, предложения отбираются запросом к базе данных
+            return users.findFriendSuggestions(userId, count);
+        }
+        return users.findUsersByIds(friendsGraph.suggestions(userId, count));
+    }
+
+    /**
+     * Построение графа "дружбы" по базе данных
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildFriendsGraph() {
+        friendsGraph.rebuild(users::findAllFriendships);
+        log.info("Граф \"дружбы\" пользователей построен.");
     }
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Справочник в памяти.
+ * Элементы хранятся в неизменяемой таблице - массиве, индексированном идентификатором.
+ * Таблица читается из базы данных при запуске (или при первом обращении) и заменяется целиком при обновлении.
+ * Наружу выдаются только копии элементов.
+ *
+ * @param <T> - тип элемента справочника
+ */
+public abstract class InMemoryDictionary<T> {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final String sqlGetAll;
+    private final RowMapper<T> rowMapper;
+    private final ToIntFunction<T> idGetter;
+    private final Function<T, String> nameGetter;
+    private final Function<T, T> copier;
+    private volatile Table<T> table;
+
+    /**
+     * @param jdbc       - шаблон запросов
+     * @param sqlGetAll  - запрос всех элементов в порядке возрастания идентификатора
+     * @param rowMapper  - преобразование строки результата в элемент
+     * @param idGetter   - идентификатор элемента
+     * @param nameGetter - наименование элемента
+     * @param copier     - копирование элемента
+     */
+    protected InMemoryDictionary(NamedParameterJdbcTemplate jdbc, String sqlGetAll, RowMapper<T> rowMapper,
+                                 ToIntFunction<T> idGetter, Function<T, String> nameGetter,
+                                 Function<T, T> copier) {
+        this.jdbc = jdbc;
+        this.sqlGetAll = sqlGetAll;
+        this.rowMapper = rowMapper;
+        this.idGetter = idGetter;
+        this.nameGetter = nameGetter;
+        this.copier = copier;
+    }
+
+    /**
+     * Чтение справочника из базы данных
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void refresh() {
+        List<T> items = jdbc.query(sqlGetAll, rowMapper);
+        int maxId = items.stream().mapToInt(idGetter).max().orElse(0);
+        Object[] byId = new Object[maxId + 1];
+        for (T item : items) {
+            byId[idGetter.applyAsInt(item)] = item;
+        }
+        table = new Table<>(byId, List.copyOf(items));
+    }
+
+    /**
+     * Поиск элемента по идентификатору
+     *
+     * @param id - идентификатор элемента
+     * @return - копия элемента
+     */
+    public Optional<T> find(int id) {
+        return Optional.ofNullable(table().get(id)).map(copier);
+    }
+
+    /**
+     * Наименование элемента по идентификатору
+     *
+     * @param id - идентификатор элемента
+     * @return - наименование или null для неизвестного элемента
+     */
+    public String getName(int id) {
+        T item = table().get(id);
+        return item == null ? null : nameGetter.apply(item);
+    }
+
+    /**
+     * Все элементы в порядке возрастания идентификатора
+     *
+     * @return - список копий элементов
+     */
+    public List<T> findAll() {
+        return table().all().stream()
+                .map(copier)
+                .toList();
+    }
+
+    private Table<T> table() {
+        Table<T> current = table;
+        if (current == null) {
+            synchronized (this) {
+                if (table == null) {
+                    refresh();
+                }
+                current = table;
+            }
+        }
+        return current;
+    }
+
+    // неизменяемая таблица справочника
+    private record Table<T>(Object[] byId, List<T> all) {
+
+        @SuppressWarnings("unchecked")
+        T get(int id) {
+            return id < 0 || id >= byId.length ? null : (T) byId[id];
+        }
+    }
+}
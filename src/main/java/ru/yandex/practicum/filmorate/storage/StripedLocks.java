@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Набор блокировок, выбираемых по паре идентификаторов.
+ * Упорядочивает обновления одной пары без общей блокировки: обновления разных пар
+ * выполняются параллельно, кроме редких совпадений номера блокировки.
+ */
+public class StripedLocks {
+
+    private final Lock[] locks;
+
+    /**
+     * @param stripes - число блокировок, степень двойки
+     */
+    public StripedLocks(int stripes) {
+        if (Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Число блокировок должно быть степенью двойки: " + stripes);
+        }
+        locks = new Lock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Блокировка пары идентификаторов
+     *
+     * @param id1 - первый идентификатор пары
+     * @param id2 - второй идентификатор пары
+     * @return - блокировка, общая для всех обновлений пары
+     */
+    public Lock get(int id1, int id2) {
+        int hash = 31 * id1 + id2;
+        hash ^= hash >>> 16;
+        return locks[hash & (locks.length - 1)];
+    }
+}
@@ -4,6 +4,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
 
 @Repository
 public class AdminDbStorage implements AdminStorage {
@@ -19,6 +21,10 @@ public class AdminDbStorage implements AdminStorage {
     /**
      * Запросы удаления пользователей
      */
+    private static final String SQL_DECREASE_LIKES_COUNT_BY_USER_ID = """
+            UPDATE films SET likes_count = likes_count - 1
+            WHERE id IN (SELECT film_id FROM likes WHERE user_id = :userId)
+            """;
     private static final String SQL_REMOVE_LIKE_USER_BY_ID = "DELETE FROM likes WHERE USER_ID = :userId";
     private static final String SQL_REMOVE_REVIEWS_USER_BY_ID = "DELETE FROM reviews WHERE USER_ID = :userId";
     private static final String SQL_REMOVE_FEED_USER_BY_ID = "DELETE FROM feed WHERE USER_ID = :userId";
@@ -28,13 +34,17 @@ public class AdminDbStorage implements AdminStorage {
     private static final String SQL_REMOVE_USERS_USER_BY_ID = "DELETE FROM USERS WHERE ID = :userId";
     @Autowired
     private NamedParameterJdbcTemplate jdbc;
+    @Autowired
+    private FilmCache filmCache;
 
 
     /**
      * Удаление всех пользователей
      */
     @Override
+    @Transactional
     public void removeAllUsers() {
+        jdbc.update("UPDATE films SET likes_count = 0", new MapSqlParameterSource());
         jdbc.update("DELETE FROM likes", new MapSqlParameterSource());
         jdbc.update("DELETE FROM reviews", new MapSqlParameterSource());
         jdbc.update("DELETE FROM feed", new MapSqlParameterSource());
@@ -48,9 +58,11 @@ public class AdminDbStorage implements AdminStorage {
      * Удаление пользователя и смеждных данных по ID
      */
     @Override
+    @Transactional
     public void removeUsersById(Integer id) {
         MapSqlParameterSource mapSqlParameterSource = new MapSqlParameterSource()
                 .addValue("userId", id);
+        jdbc.update(SQL_DECREASE_LIKES_COUNT_BY_USER_ID, mapSqlParameterSource);
         jdbc.update(SQL_REMOVE_LIKE_USER_BY_ID, mapSqlParameterSource);
         jdbc.update(SQL_REMOVE_REVIEWS_USER_BY_ID, mapSqlParameterSource);
         jdbc.update(SQL_REMOVE_FEED_USER_BY_ID, mapSqlParameterSource);
@@ -73,6 +85,7 @@ public class AdminDbStorage implements AdminStorage {
         jdbc.update(SQL_REMOVE_DIRECTORS_FILM_BY_ID, mapSqlParameterSource);
         jdbc.update(SQL_REMOVE_REVIEWS_FILM_BY_ID, mapSqlParameterSource);
         jdbc.update(SQL_REMOVE_FILM_BY_ID, mapSqlParameterSource);
+        filmCache.invalidate(id);
     }
 
 
@@ -86,6 +99,7 @@ public class AdminDbStorage implements AdminStorage {
         jdbc.update("DELETE FROM films_directors", new MapSqlParameterSource());
         jdbc.update("DELETE FROM reviews", new MapSqlParameterSource());
         jdbc.update("DELETE FROM films", new MapSqlParameterSource());
+        filmCache.clear();
     }
 
 
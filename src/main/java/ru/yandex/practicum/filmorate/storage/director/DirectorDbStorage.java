@@ -10,11 +10,11 @@ import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
-import ru.yandex.practicum.filmorate.mapper.DirectorRowMapper;
 import ru.yandex.practicum.filmorate.mapper.FilmDirectorRowMapper;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.FilmDirector;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
 
 import java.util.Collection;
 import java.util.List;
@@ -26,9 +26,6 @@ import java.util.Optional;
 @Repository
 public class DirectorDbStorage implements DirectorStorage {
 
-    private static final String SQL_FIND_ALL_DIRECTORS = "SELECT * FROM directors";
-    private static final String SQL_FIND_DIRECTOR_BY_ID =
-            "SELECT * FROM directors WHERE id = :id";
     private static final String SQL_INSERT_DIRECTOR =
             "INSERT INTO directors (name) VALUES (:name)";
     private static final String SQL_UPDATE_DIRECTOR =
@@ -42,44 +39,35 @@ public class DirectorDbStorage implements DirectorStorage {
     private static final String SQL_UPDATE_FILMS_DIRECTORS =
             "INSERT INTO films_directors (film_id, director_id) "
                     + "VALUES (:film_id, :director_id)";
-    private static final String SQL_FIND_DIRECTORS_BY_FILM_ID = """
-            SELECT d.id, d.name
-                FROM directors d
-                INNER JOIN films_directors fd ON d.id = fd.director_id
-                WHERE fd.film_id = :film_id
-            """;
+    // имена режиссеров берутся из реестра в памяти, таблица directors не соединяется
+    private static final String SQL_FIND_DIRECTORS_BY_FILM_ID =
+            "SELECT fd.film_id, fd.director_id FROM films_directors fd "
+                    + "WHERE fd.film_id = :film_id ORDER BY fd.director_id";
     private static final String SQL_FIND_ALL_FILM_DIRECTORS =
-            "SELECT fd.film_id, fd.director_id, d.name AS director_name "
-                    + "FROM films_directors fd LEFT JOIN directors d ON fd.director_id = d.id";
-    private static final String SQL_FIND_DIRECTORS_BY_NAME =
-            "SELECT d.id, d.name FROM directors d WHERE d.name LIKE %:name%";
+            "SELECT fd.film_id, fd.director_id FROM films_directors fd";
+    private static final String SQL_FIND_FILM_DIRECTORS_BY_FILMS_IDS =
+            "SELECT fd.film_id, fd.director_id FROM films_directors fd "
+                    + "WHERE fd.film_id IN (:films_ids) ORDER BY fd.film_id, fd.director_id";
     private final NamedParameterJdbcTemplate jdbc;
+    private final FilmCache filmCache;
+    private final DirectorRegistry directorRegistry;
 
-    public DirectorDbStorage(@Autowired NamedParameterJdbcTemplate jdbc) {
+    public DirectorDbStorage(@Autowired NamedParameterJdbcTemplate jdbc,
+                             @Autowired FilmCache filmCache,
+                             @Autowired DirectorRegistry directorRegistry) {
         this.jdbc = jdbc;
+        this.filmCache = filmCache;
+        this.directorRegistry = directorRegistry;
     }
 
     @Override
     public Collection<Director> findAll() {
-        try {
-            Collection<Director> directors = jdbc.query(SQL_FIND_ALL_DIRECTORS, new DirectorRowMapper());
-            return directors;
-        } catch (EmptyResultDataAccessException ignored) {
-            return List.of();
-        }
+        return directorRegistry.findAll();
     }
 
     @Override
     public Optional<Director> findDirectorById(int id) {
-        try {
-            Director director = jdbc.queryForObject(SQL_FIND_DIRECTOR_BY_ID,
-                    new MapSqlParameterSource()
-                            .addValue("id", id),
-                    new DirectorRowMapper());
-            return Optional.ofNullable(director);
-        } catch (DataAccessException ignored) {
-            return Optional.empty();
-        }
+        return directorRegistry.find(id);
     }
 
     @Override
@@ -100,7 +88,7 @@ public class DirectorDbStorage implements DirectorStorage {
         // получаем идентификатор
         final Integer directorId = generatedKeyHolder.getKey().intValue();
 
-        // возвращаем объект прочитанный из базы
+        directorRegistry.put(new Director(directorId, director.getName()));
         return findDirectorById(directorId).orElseThrow(() ->
                 new InternalServerException("Ошибка при добавлении режиссера."));
     }
@@ -117,8 +105,10 @@ public class DirectorDbStorage implements DirectorStorage {
         if (rowsUpdated == 0) {
             throw new NotFoundException("Не удалось обновить информацию. Не наден режиссер " + director.toString());
         }
+        directorRegistry.put(director);
+        // имя режиссера хранится в кэшированных фильмах
+        filmCache.clear();
 
-        // возвращаем объект прочитанный из базы
         return findDirectorById(director.getId())
                 .orElseThrow(() -> new InternalServerException("Ошибка при обновлении режиссера."));
     }
@@ -131,6 +121,8 @@ public class DirectorDbStorage implements DirectorStorage {
 
         jdbc.update(SQL_DELETE_FILMS_DIRECTOR, params);
         jdbc.update(SQL_DELETE_DIRECTOR, params);
+        directorRegistry.remove(id);
+        filmCache.clear();
     }
 
     /**
@@ -159,11 +151,12 @@ public class DirectorDbStorage implements DirectorStorage {
     @Override
     public Collection<Director> findDirectorsByFilmId(Integer filmId) {
         try {
-            Collection<Director> directors = jdbc.query(SQL_FIND_DIRECTORS_BY_FILM_ID,
-                    new MapSqlParameterSource()
-                            .addValue("film_id", filmId),
-                    new DirectorRowMapper());
-            return directors;
+            return jdbc.query(SQL_FIND_DIRECTORS_BY_FILM_ID,
+                            new MapSqlParameterSource()
+                                    .addValue("film_id", filmId),
+                            new FilmDirectorRowMapper(directorRegistry)).stream()
+                    .map(FilmDirector::getDirector)
+                    .toList();
         } catch (EmptyResultDataAccessException ignored) {
             return List.of();
         }
@@ -173,23 +166,38 @@ public class DirectorDbStorage implements DirectorStorage {
     public Collection<FilmDirector> findAllFilmDirector() {
         try {
             Collection<FilmDirector> filmDirectors = jdbc.query(SQL_FIND_ALL_FILM_DIRECTORS,
-                    new FilmDirectorRowMapper());
+                    new FilmDirectorRowMapper(directorRegistry));
             return filmDirectors;
         } catch (EmptyResultDataAccessException ignored) {
             return List.of();
         }
     }
 
+    /**
+     * Поиск связей фильм - режиссер для заданных фильмов
+     *
+     * @param filmsIds - список идентификаторов фильмов
+     * @return - список пар {filmId, director}
+     */
     @Override
-    public Collection<Director> findDirectorsByName(String nameSubstring) {
+    public Collection<FilmDirector> findFilmDirectorsByFilmIds(Collection<Integer> filmsIds) {
+        if (filmsIds.isEmpty()) {
+            return List.of();
+        }
         try {
-            Collection<Director> directors = jdbc.query(SQL_FIND_ALL_FILM_DIRECTORS,
+            return jdbc.query(SQL_FIND_FILM_DIRECTORS_BY_FILMS_IDS,
                     new MapSqlParameterSource()
-                            .addValue("name", nameSubstring),
-                    new DirectorRowMapper());
-            return directors;
+                            .addValue("films_ids", filmsIds),
+                    new FilmDirectorRowMapper(directorRegistry));
         } catch (EmptyResultDataAccessException ignored) {
             return List.of();
         }
     }
+
+    @Override
+    public Collection<Director> findDirectorsByName(String nameSubstring) {
+        return directorRegistry.findAll().stream()
+                .filter(director -> director.getName() != null && director.getName().contains(nameSubstring))
+                .toList();
+    }
 }
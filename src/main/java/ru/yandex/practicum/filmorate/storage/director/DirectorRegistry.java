@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.storage.director;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.mapper.DirectorRowMapper;
+import ru.yandex.practicum.filmorate.model.Director;
+
+import java.util.*;
+
+/**
+ * Реестр режиссеров в памяти, упорядоченный по идентификатору.
+ * Режиссеры хранятся в неизменяемой таблице, которая читается из базы данных при запуске
+ * (или при первом обращении) и заменяется целиком: при обновлении из базы данных, а также
+ * копией с изменением при добавлении, изменении и удалении режиссера хранилищем режиссеров.
+ */
+@Component
+public class DirectorRegistry {
+    private static final String SQL_FIND_ALL_DIRECTORS = "SELECT * FROM directors ORDER BY id";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private volatile SortedMap<Integer, Director> directors;
+
+    public DirectorRegistry(@Autowired NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Чтение всех режиссеров из базы данных
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void refresh() {
+        SortedMap<Integer, Director> allDirectors = new TreeMap<>();
+        for (Director director : jdbc.query(SQL_FIND_ALL_DIRECTORS, new DirectorRowMapper())) {
+            allDirectors.put(director.getId(), director);
+        }
+        directors = Collections.unmodifiableSortedMap(allDirectors);
+    }
+
+    /**
+     * Поиск режиссера по идентификатору
+     *
+     * @param id - идентификатор режиссера
+     * @return - копия режиссера
+     */
+    public Optional<Director> find(int id) {
+        return Optional.ofNullable(directors().get(id)).map(DirectorRegistry::copy);
+    }
+
+    /**
+     * Имя режиссера по идентификатору
+     *
+     * @param id - идентификатор режиссера
+     * @return - имя или null для неизвестного режиссера
+     */
+    public String getName(int id) {
+        Director director = directors().get(id);
+        return director == null ? null : director.getName();
+    }
+
+    /**
+     * Все режиссеры в порядке возрастания идентификатора
+     *
+     * @return - список копий режиссеров
+     */
+    public List<Director> findAll() {
+        return directors().values().stream()
+                .map(DirectorRegistry::copy)
+                .toList();
+    }
+
+    /**
+     * Добавление или изменение режиссера, сохраненного в базе данных
+     *
+     * @param director - объект описания режиссера
+     */
+    public synchronized void put(Director director) {
+        SortedMap<Integer, Director> changed = new TreeMap<>(directors());
+        changed.put(director.getId(), copy(director));
+        directors = Collections.unmodifiableSortedMap(changed);
+    }
+
+    /**
+     * Удаление режиссера
+     *
+     * @param id - идентификатор режиссера
+     */
+    public synchronized void remove(int id) {
+        SortedMap<Integer, Director> changed = new TreeMap<>(directors());
+        changed.remove(id);
+        directors = Collections.unmodifiableSortedMap(changed);
+    }
+
+    private SortedMap<Integer, Director> directors() {
+        SortedMap<Integer, Director> current = directors;
+        if (current == null) {
+            synchronized (this) {
+                if (directors == null) {
+                    refresh();
+                }
+                current = directors;
+            }
+        }
+        return current;
+    }
+
+    private static Director copy(Director director) {
+        return new Director(director.getId(), director.getName());
+    }
+}
@@ -27,6 +27,8 @@ public interface DirectorStorage {
 
     Collection<FilmDirector> findAllFilmDirector();
 
+    Collection<FilmDirector> findFilmDirectorsByFilmIds(Collection<Integer> filmsIds);
+
     Collection<Director> findDirectorsByName(String nameSubstring);
 
 }
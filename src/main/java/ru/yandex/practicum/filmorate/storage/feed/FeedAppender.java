@@ -0,0 +1,227 @@
+package ru.yandex.practicum.filmorate.storage.feed;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Feed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Асинхронная запись событий ленты.
+ * События помещаются в ограниченную очередь и записываются в базу данных пакетами одним потоком,
+ * поэтому идентификаторы событий возрастают в порядке их добавления (и времени событий).
+ * При включенном режиме flush-before-ack добавление ждет записи пакета, в который попало событие,
+ * иначе событие записывается не позже чем через max-lag-ms миллисекунд.
+ * <p>
+ * Событие добавляется после фиксации изменения, которое оно описывает, поэтому ошибка записи ленты
+ * не возвращается в запрос: пакет записывается повторно с нарастающей паузой не более max-attempts раз,
+ * после чего его события теряются с записью в журнал, а поток записи переходит к следующему пакету.
+ * В режиме flush-before-ack запрос ожидает записи не дольше ACK_TIMEOUT_LAGS интервалов max-lag-ms.
+ * События, не записанные к остановке приложения, также теряются с записью в журнал.
+ */
+@Slf4j
+@Component
+public class FeedAppender {
+
+    // наибольшая пауза между повторными попытками записи пакета
+    private static final long MAX_RETRY_DELAY_MS = 5000;
+    // наибольшее время ожидания записи события в интервалах max-lag-ms
+    private static final int ACK_TIMEOUT_LAGS = 50;
+
+    private final FeedStorage feeds;
+    private final BlockingQueue<PendingFeed> queue;
+    private final int batchSize;
+    private final boolean flushBeforeAck;
+    private final long maxLagMs;
+    private final int maxAttempts;
+    private Thread writer;
+    // порядок назначения времени и постановки событий в очередь
+    private final Lock appendLock = new ReentrantLock();
+    // ожидание записи последнего добавленного события
+    private volatile CompletableFuture<Void> lastWritten = CompletableFuture.completedFuture(null);
+    private volatile boolean running = true;
+    // добавление завершено, поток записи завершается после опустошения очереди
+    private volatile boolean closed = false;
+
+    public FeedAppender(FeedStorage feeds,
+                        @Value("${filmorate.feed.queue-capacity:10000}") int queueCapacity,
+                        @Value("${filmorate.feed.batch-size:500}") int batchSize,
+                        @Value("${filmorate.feed.flush-before-ack:true}") boolean flushBeforeAck,
+                        @Value("${filmorate.feed.max-lag-ms:100}") long maxLagMs,
+                        @Value("${filmorate.feed.max-attempts:5}") int maxAttempts) {
+        this.feeds = feeds;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushBeforeAck = flushBeforeAck;
+        this.maxLagMs = maxLagMs;
+        this.maxAttempts = Math.max(maxAttempts, 1);
+    }
+
+    /**
+     * Запуск потока записи после создания компонента, чтобы при ошибке создания контекста
+     * поток не оставался запущенным
+     */
+    @PostConstruct
+    public void start() {
+        writer = new Thread(this::writeLoop, "feed-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Добавление события в ленту.
+     * Время события назначается при постановке в очередь, поэтому порядок времени событий
+     * совпадает с порядком их записи. При заполненной очереди добавление ожидает освобождения места,
+     * но не дольше остановки записи.
+     *
+     * @param feed - событие без времени и идентификатора
+     */
+    public void append(Feed feed) {
+        PendingFeed pending = new PendingFeed(feed, new CompletableFuture<>());
+        appendLock.lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Запись ленты событий остановлена");
+            }
+            feed.setTimestamp(System.currentTimeMillis());
+            while (!queue.offer(pending, maxLagMs, TimeUnit.MILLISECONDS)) {
+                if (!running) {
+                    throw new IllegalStateException("Запись ленты событий остановлена");
+                }
+            }
+            lastWritten = pending.written();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Прервано добавление события в ленту", e);
+        } finally {
+            appendLock.unlock();
+        }
+        if (flushBeforeAck) {
+            await(pending.written());
+        }
+    }
+
+    /**
+     * Ожидание записи всех событий, добавленных до вызова метода
+     */
+    public void flush() {
+        await(lastWritten);
+    }
+
+    /**
+     * Остановка записи: события, оставшиеся в очереди, записываются перед завершением.
+     * Добавление, ожидающее места в очереди, прекращается не позже чем через max-lag-ms миллисекунд.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        // после завершения начатых добавлений новые события в очередь не попадают
+        appendLock.lock();
+        try {
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("Не записаны события ленты: {}.", queue.size());
+        }
+    }
+
+    private void writeLoop() {
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingFeed first = queue.poll(maxLagMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<PendingFeed> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                if (!flushBeforeAck) {
+                    // без ожидания подтверждения пакет добирается в пределах допустимой задержки
+                    long deadline = System.currentTimeMillis() + maxLagMs;
+                    while (batch.size() < batchSize && running) {
+                        long wait = deadline - System.currentTimeMillis();
+                        PendingFeed next = wait > 0 ? queue.poll(wait, TimeUnit.MILLISECONDS) : null;
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                        queue.drainTo(batch, batchSize - batch.size());
+                    }
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Запись пакета событий. При ошибке пакет записывается повторно с нарастающей паузой,
+     * после исчерпания попыток или остановки записи ожидающим запросам сообщается об отказе.
+     */
+    private void write(List<PendingFeed> batch) throws InterruptedException {
+        long delay = Math.max(maxLagMs, 1);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                feeds.createAll(batch.stream().map(PendingFeed::feed).toList());
+                batch.forEach(pending -> pending.written().complete(null));
+                return;
+            } catch (RuntimeException e) {
+                if (closed || attempt >= maxAttempts) {
+                    log.error("Не записаны события ленты после {} попыток: {}.", attempt,
+                            batch.stream().map(PendingFeed::feed).toList(), e);
+                    batch.forEach(pending -> pending.written().completeExceptionally(e));
+                    return;
+                }
+                log.error("Ошибка записи {} событий ленты, повтор через {} мс.", batch.size(), delay, e);
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                batch.forEach(pending -> pending.written().completeExceptionally(e));
+                throw e;
+            }
+            delay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+        }
+    }
+
+    private void await(CompletableFuture<Void> written) {
+        try {
+            written.get(maxLagMs * ACK_TIMEOUT_LAGS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ignored) {
+            // изменение, описываемое событием, уже зафиксировано, потеря события записана в журнал
+        } catch (TimeoutException e) {
+            log.warn("Событие ленты не записано за {} мс, запрос подтверждается без ожидания записи.",
+                    maxLagMs * ACK_TIMEOUT_LAGS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // событие, ожидающее записи
+    private record PendingFeed(Feed feed, CompletableFuture<Void> written) {
+    }
+}
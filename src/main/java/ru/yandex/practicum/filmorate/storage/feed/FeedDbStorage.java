@@ -4,21 +4,39 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.mapper.FeedRowMapper;
 import ru.yandex.practicum.filmorate.model.Feed;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 @RequiredArgsConstructor
 public class FeedDbStorage implements FeedStorage {
 
     private static final String SELECT_FEEDS_QUERY = "SELECT * FROM feed WHERE user_id = :user_id ORDER BY timestamp";
+    private static final String SELECT_FEEDS_PAGE_QUERY = "SELECT * FROM feed WHERE user_id = :user_id " +
+            "ORDER BY timestamp DESC, event_id DESC LIMIT :limit";
+    // события, предшествующие позиции (before_timestamp, before_event_id) в порядке (timestamp, event_id)
+    private static final String SELECT_FEEDS_PAGE_BEFORE_QUERY = "SELECT * FROM feed WHERE user_id = :user_id " +
+            "AND timestamp <= :before_timestamp " +
+            "AND (timestamp < :before_timestamp OR event_id < :before_event_id) " +
+            "ORDER BY timestamp DESC, event_id DESC LIMIT :limit";
+    private static final String SELECT_FEEDS_OLDER_THAN_QUERY = "SELECT * FROM feed WHERE timestamp < :timestamp " +
+            "ORDER BY timestamp, event_id LIMIT :limit";
+    private static final String SELECT_USERS_WITH_FEEDS_OVER_QUERY = "SELECT user_id FROM feed " +
+            "GROUP BY user_id HAVING COUNT(*) > :max_events";
+    // события пользователя после keep самых новых, начиная с самых новых из них
+    private static final String SELECT_USER_FEEDS_BEYOND_QUERY = "SELECT * FROM feed WHERE user_id = :user_id " +
+            "ORDER BY timestamp DESC, event_id DESC OFFSET :keep ROWS FETCH FIRST :limit ROWS ONLY";
+    private static final String DELETE_FEEDS_BY_IDS_QUERY = "DELETE FROM feed WHERE event_id IN (:ids)";
     private static final String INSERT_FEED_QUERY = "INSERT INTO feed (timestamp, user_id, event_type, operation_type, " +
             "entity_id) VALUES (:timestamp, :user_id, :event_type, :operation_type, :entity_id)";
 
@@ -50,6 +68,95 @@ public class FeedDbStorage implements FeedStorage {
         }
     }
 
+    /**
+     * Создает записи в ленте одним пакетом.
+     * Идентификаторы событий назначаются в порядке списка. Пакет записывается целиком или не записывается,
+     * поэтому его можно повторить после ошибки.
+     *
+     * @param feeds события в порядке добавления
+     */
+    @Override
+    @Transactional
+    public void createAll(List<Feed> feeds) {
+        SqlParameterSource[] batch = feeds.stream()
+                .map(feed -> new MapSqlParameterSource()
+                        .addValue("timestamp", feed.getTimestamp())
+                        .addValue("user_id", feed.getUserId())
+                        .addValue("event_type", feed.getEventType().toString())
+                        .addValue("operation_type", feed.getOperation().toString())
+                        .addValue("entity_id", feed.getEntityId()))
+                .toArray(SqlParameterSource[]::new);
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+
+        jdbc.batchUpdate(INSERT_FEED_QUERY, batch, keyHolder, new String[]{"event_id"});
+
+        // идентификаторы возвращаются в порядке строк пакета
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < feeds.size(); i++) {
+            feeds.get(i).setEventId(((Number) keys.get(i).values().iterator().next()).intValue());
+        }
+    }
+
+    /**
+     * Возвращает порцию событий старше заданного времени, начиная с самых старых.
+     *
+     * @param timestamp граница времени событий
+     * @param limit     размер порции
+     * @return список событий
+     */
+    @Override
+    public List<Feed> findOlderThan(long timestamp, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("timestamp", timestamp)
+                .addValue("limit", limit);
+
+        return jdbc.query(SELECT_FEEDS_OLDER_THAN_QUERY, parameters, new FeedRowMapper());
+    }
+
+    /**
+     * Возвращает идентификаторы пользователей, число событий в ленте которых превышает заданное.
+     *
+     * @param maxEvents допустимое число событий
+     * @return список идентификаторов пользователей
+     */
+    @Override
+    public List<Integer> findUsersWithFeedsOver(int maxEvents) {
+        return jdbc.queryForList(SELECT_USERS_WITH_FEEDS_OVER_QUERY,
+                new MapSqlParameterSource("max_events", maxEvents), Integer.class);
+    }
+
+    /**
+     * Возвращает порцию событий пользователя, не входящих в keep самых новых.
+     *
+     * @param userId ID пользователя
+     * @param keep   число сохраняемых новых событий
+     * @param limit  размер порции
+     * @return список событий
+     */
+    @Override
+    public List<Feed> findUserFeedsBeyond(Integer userId, int keep, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("user_id", userId)
+                .addValue("keep", keep)
+                .addValue("limit", limit);
+
+        return jdbc.query(SELECT_USER_FEEDS_BEYOND_QUERY, parameters, new FeedRowMapper());
+    }
+
+    /**
+     * Удаляет события по идентификаторам.
+     *
+     * @param eventIds идентификаторы событий
+     * @return число удаленных событий
+     */
+    @Override
+    public int removeByIds(List<Integer> eventIds) {
+        if (eventIds.isEmpty()) {
+            return 0;
+        }
+        return jdbc.update(DELETE_FEEDS_BY_IDS_QUERY, new MapSqlParameterSource("ids", eventIds));
+    }
+
     /**
      * Возвращает все записи из ленты событий для пользователя с указанным ID.
      *
@@ -67,4 +174,26 @@ public class FeedDbStorage implements FeedStorage {
             return List.of();
         }
     }
+
+    /**
+     * Возвращает страницу ленты событий пользователя, начиная с самых новых событий.
+     * Страница читается диапазоном индекса (user_id, timestamp, event_id).
+     *
+     * @param userId          ID пользователя
+     * @param beforeTimestamp время последнего события предыдущей страницы, null - с самого нового события
+     * @param beforeEventId   ID последнего события предыдущей страницы
+     * @param limit           размер страницы
+     * @return список событий в порядке убывания времени
+     */
+    @Override
+    public Collection<Feed> findByUserId(Integer userId, Long beforeTimestamp, Integer beforeEventId, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("user_id", userId)
+                .addValue("before_timestamp", beforeTimestamp)
+                .addValue("before_event_id", beforeEventId)
+                .addValue("limit", limit);
+
+        return jdbc.query(beforeTimestamp == null ? SELECT_FEEDS_PAGE_QUERY : SELECT_FEEDS_PAGE_BEFORE_QUERY,
+                parameters, new FeedRowMapper());
+    }
 }
\ No newline at end of file
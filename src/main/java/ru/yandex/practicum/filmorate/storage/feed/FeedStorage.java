@@ -3,10 +3,23 @@ package ru.yandex.practicum.filmorate.storage.feed;
 import ru.yandex.practicum.filmorate.model.Feed;
 
 import java.util.Collection;
+import java.util.List;
 
 public interface FeedStorage {
 
     Collection<Feed> findAllByUserId(Integer id);
 
+    Collection<Feed> findByUserId(Integer userId, Long beforeTimestamp, Integer beforeEventId, int limit);
+
     void create(Feed feed);
+
+    void createAll(List<Feed> feeds);
+
+    List<Feed> findOlderThan(long timestamp, int limit);
+
+    List<Integer> findUsersWithFeedsOver(int maxEvents);
+
+    List<Feed> findUserFeedsBeyond(Integer userId, int keep, int limit);
+
+    int removeByIds(List<Integer> eventIds);
 }
\ No newline at end of file
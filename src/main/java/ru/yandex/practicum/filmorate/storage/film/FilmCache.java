@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Кэш фильмов, прочитанных по идентификатору.
+ * Ограничен по числу записей, при переполнении вытесняется давно не использованный фильм (LRU).
+ * Фильмы копируются при записи в кэш и при выдаче, поэтому изменение полученного объекта
+ * не затрагивает содержимое кэша.
+ */
+@Component
+public class FilmCache {
+
+    private final int capacity;
+    private final LinkedHashMap<Integer, Film> films;
+    // номер версии содержимого, увеличивается при каждой инвалидации
+    private long version = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public FilmCache(@Value("${filmorate.film-cache.capacity:10000}") int capacity) {
+        this.capacity = capacity;
+        this.films = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Film> eldest) {
+                if (size() > FilmCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Чтение фильма из кэша
+     *
+     * @param filmId - идентификатор фильма
+     * @return - копия фильма или null, если фильма нет в кэше
+     */
+    public synchronized Film get(Integer filmId) {
+        Film film = films.get(filmId);
+        if (film == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return copy(film);
+    }
+
+    /**
+     * Текущая версия содержимого кэша.
+     * Читается перед загрузкой фильма из базы данных и передается в put.
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Запись фильма в кэш.
+     * Фильм не записывается, если после чтения версии кэш был инвалидирован:
+     * загруженные данные могли устареть.
+     *
+     * @param film    - фильм, прочитанный из базы данных
+     * @param version - версия кэша на момент начала чтения
+     */
+    public synchronized void put(Film film, long version) {
+        if (capacity > 0 && this.version == version) {
+            films.put(film.getId(), copy(film));
+        }
+    }
+
+    /**
+     * Удаление фильма из кэша
+     *
+     * @param filmId - идентификатор фильма
+     */
+    public synchronized void invalidate(Integer filmId) {
+        version++;
+        films.remove(filmId);
+    }
+
+    /**
+     * Удаление всех фильмов из кэша
+     */
+    public synchronized void clear() {
+        version++;
+        films.clear();
+    }
+
+    /**
+     * Статистика использования кэша
+     *
+     * @return - размер, емкость, число попаданий, промахов и вытеснений
+     */
+    public synchronized Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) films.size());
+        stats.put("capacity", (long) capacity);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("evictions", evictions);
+        return stats;
+    }
+
+    private static Film copy(Film film) {
+        Film copy = new Film();
+        copy.setId(film.getId());
+        copy.setName(film.getName());
+        copy.setDescription(film.getDescription());
+        copy.setReleaseDate(film.getReleaseDate());
+        copy.setDuration(film.getDuration());
+        if (film.getMpa() != null) {
+            Mpa mpa = film.getMpa();
+            copy.setMpa(new Mpa(mpa.getId(), mpa.getName(), mpa.getDescription()));
+        }
+        for (Genre genre : film.getGenres()) {
+            copy.addGenre(new Genre(genre.getId(), genre.getName()));
+        }
+        for (Director director : film.getDirectors()) {
+            copy.addDirector(new Director(director.getId(), director.getName()));
+        }
+        return copy;
+    }
+}
@@ -2,89 +2,158 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.mapper.FilmDetailsRowMapper;
 import ru.yandex.practicum.filmorate.mapper.FilmRowMapper;
 import ru.yandex.practicum.filmorate.model.*;
+import ru.yandex.practicum.filmorate.storage.director.DirectorRegistry;
 import ru.yandex.practicum.filmorate.storage.director.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDictionary;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDictionary;
 
 import java.sql.Types;
-import java.util.Collection;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Repository
 public class FilmDbStorage implements FilmStorage {
+    // Максимальное число идентификаторов в одном условии IN (...)
+    private static final int SQL_IN_BATCH_SIZE = 500;
     // Запрос для заполнения информации о фильме
     private static final String SQL_INSERT_FILM = """
-            INSERT INTO films (name, description, releasedate, len_min, mpa_id)
-            VALUES ( :name, :description, :releasedate, :len_min, :mpa_id)
+            INSERT INTO films (name, description, releasedate, len_min, mpa_id, genres_key)
+            VALUES ( :name, :description, :releasedate, :len_min, :mpa_id, :genres_key)
             """;
+    private static final String SQL_FIND_DUPLICATE_FILM = """
+            SELECT id FROM films
+            WHERE name = :name AND releasedate = :releasedate AND mpa_id = :mpa_id AND genres_key = :genres_key
+            LIMIT 1
+            """;
+    private static final String SQL_EXISTS_FILM = "SELECT EXISTS (SELECT 1 FROM films WHERE id = :id)";
     private static final String SQL_UPDATE_DIRECTORS = """
             INSERT INTO films_directors (film_id, director_id) VALUES (:film_id, :director_id)""";
+    private static final String SQL_INSERT_FILM_GENRE = """
+            INSERT INTO films_genres (film_id, genre_id) VALUES (:film_id, :genre_id)""";
+    // фильм вместе с жанрами и режиссерами за один запрос,
+    // наименования рейтинга, жанров и имена режиссеров берутся из справочников в памяти
     private static final String SQL_FIND_FILM_BY_ID = """
-                SELECT f.*, mpa.name as mpa_name
-                FROM films AS f INNER JOIN mpa ON f.MPA_ID = mpa.ID
-                WHERE f.id = :id;
+            SELECT f.*,
+                   (SELECT ARRAY_AGG(fg.genre_id ORDER BY fg.genre_id)
+                    FROM films_genres AS fg
+                    WHERE fg.film_id = f.id) AS genres_ids,
+                   (SELECT ARRAY_AGG(fd.director_id ORDER BY fd.director_id)
+                    FROM films_directors AS fd
+                    WHERE fd.film_id = f.id) AS directors_ids
+            FROM films AS f
+            WHERE f.id = :id
             """;
     private static final String SQL_FIND_FILMS_BY_IDS = """
-            SELECT f.*, mpa.name as mpa_name FROM (films AS f
-            INNER JOIN mpa ON f.mpa_id = mpa.id)
+            SELECT f.* FROM films AS f
             WHERE f.id IN (:films_ids)
             """;
-    private static final String SQL_FIND_ALL_FILMS = """
-            SELECT f.*, mpa.name as mpa_name FROM films AS f
-            INNER JOIN mpa ON f.mpa_id = mpa.id
+    private static final String SQL_FIND_ALL_FILMS = "SELECT f.* FROM films AS f";
+    private static final String SQL_EXPORT_FILMS = """
+            SELECT f.*, fg.genre_id, fd.director_id
+            FROM films AS f
+                 LEFT JOIN films_genres AS fg ON fg.film_id = f.id
+                 LEFT JOIN films_directors AS fd ON fd.film_id = f.id
+            ORDER BY f.id, fg.genre_id, fd.director_id
+            """;
+    private static final String SQL_FIND_FILMS_PAGE = """
+            SELECT f.* FROM films AS f
+            WHERE f.id > :after
+            ORDER BY f.id
+            LIMIT :limit
             """;
     private static final String SQL_FIND_POPULAR_FILMS = """
-            SELECT f.*, f.id AS film_id, mpa.name AS mpa_name, popular.count_film
-            FROM (films AS f INNER JOIN mpa ON f.MPA_ID = mpa.ID)
-                 LEFT OUTER JOIN
-                 (SELECT film_id, count(film_id) as count_film
-                 FROM LIKES GROUP BY film_id) AS popular
-                 ON f.id = popular.film_id
-            ORDER BY popular.count_film DESC
+            SELECT f.* FROM films AS f
+            ORDER BY f.likes_count DESC, f.id
+            """;
+    private static final String SQL_FIND_POPULAR_FILMS_FILTERED = """
+            SELECT f.* FROM films AS f
+            WHERE (:year IS NULL OR EXTRACT(YEAR FROM f.releasedate) = :year)
+              AND (:genre_id IS NULL OR EXISTS (SELECT 1 FROM films_genres AS fg
+                                                WHERE fg.film_id = f.id AND fg.genre_id = :genre_id))
+            ORDER BY f.likes_count DESC, f.id
+            LIMIT :count
+            """;
+    private static final String SQL_FIND_DIRECTOR_FILMS_BY_LIKES = """
+            SELECT f.* FROM films AS f
+            WHERE f.id IN (SELECT fd.film_id FROM films_directors AS fd WHERE fd.director_id = :director_id)
+            ORDER BY f.likes_count DESC, f.id
+            """;
+    private static final String SQL_FIND_DIRECTOR_FILMS_BY_YEAR = """
+            SELECT f.* FROM films AS f
+            WHERE f.id IN (SELECT fd.film_id FROM films_directors AS fd WHERE fd.director_id = :director_id)
+            ORDER BY f.releasedate, f.likes_count DESC, f.id
             """;
     private static final String SQL_UPDATE_FILM = """
             UPDATE films SET name = :name, description = :description,
-            releasedate = :releasedate, len_min = :len_min, mpa_id = :mpa_id  WHERE id = :id
+            releasedate = :releasedate, len_min = :len_min, mpa_id = :mpa_id, genres_key = :genres_key
+            WHERE id = :id
+            """;
+    // "лайк" добавляется только если его еще нет, чтобы счетчик не учитывал повторы
+    private static final String SQL_ADD_LIKE = """
+            INSERT INTO likes (user_id, film_id)
+            SELECT :userId, :filmId
+            WHERE NOT EXISTS (SELECT 1 FROM likes WHERE user_id = :userId AND film_id = :filmId)
             """;
-    private static final String SQL_ADD_LIKE =
-            "MERGE INTO likes (user_id, film_id) VALUES (:userId, :filmId)";
     private static final String SQL_REMOVE_LIKE = "DELETE FROM likes WHERE user_id = :userId AND film_id = :filmId";
+    private static final String SQL_CHANGE_LIKES_COUNT =
+            "UPDATE films SET likes_count = likes_count + :delta WHERE id = :filmId";
+    private static final String SQL_GET_LIKES_COUNT = "SELECT likes_count FROM films WHERE id = :filmId";
+    private static final String SQL_FIND_LIKES_COUNTS = "SELECT id, likes_count FROM films";
+    private static final String SQL_REBUILD_LIKES_COUNT = """
+            UPDATE films AS f SET likes_count = (SELECT count(*) FROM likes AS l WHERE l.film_id = f.id)
+            WHERE likes_count <> (SELECT count(*) FROM likes AS l WHERE l.film_id = f.id)
+            """;
     private static final String SQL_DELETE_ALL_FROM_TABLE =
             "DELETE FROM :table";
     private static final String SQL_FIND_COMMON_FILMS = """
-            SELECT f1.*, common.count_likes AS popular
-            FROM (SELECT f.*, mpa.name as mpa_name FROM films AS f INNER JOIN mpa ON f.mpa_id = mpa.id) AS f1
-            INNER JOIN (SELECT t1.*, t2.count_likes
-                        FROM (SELECT film_id, COUNT(film_id) as count_film
-                              FROM likes WHERE (user_id = :id1 OR user_id = :id2)
-                        GROUP BY film_id) AS t1 -- таблица всех идентификаторов фильмов с лайками обоих пользователей
-            INNER JOIN (SELECT  film_id, count(film_id) as count_likes
-                        FROM LIKES GROUP BY film_id) AS t2 -- таблица популярности фильмов
-                        ON t1.film_id = t2.film_id
-                        WHERE count_film = 2) AS common -- таблица общих фильмов
-            ON f1.id = common.film_id
-            ORDER BY popular DESC;
+            SELECT f.* FROM films AS f
+            WHERE f.id IN (SELECT l1.film_id
+                           FROM likes AS l1 INNER JOIN likes AS l2 ON l1.film_id = l2.film_id
+                           WHERE l1.user_id = :id1 AND l2.user_id = :id2) -- общие фильмы пользователей
+            ORDER BY f.likes_count DESC, f.id;
             """;
     private final NamedParameterJdbcTemplate jdbc;
     private final GenreStorage genreStorage;
     private final DirectorStorage directorStorage;
+    private final FilmCache filmCache;
+    private final GenreDictionary genreDictionary;
+    private final MpaDictionary mpaDictionary;
+    private final DirectorRegistry directorRegistry;
+    private final FilmRowMapper filmRowMapper;
+    private final FilmDetailsRowMapper filmDetailsRowMapper;
 
     public FilmDbStorage(@Autowired NamedParameterJdbcTemplate jdbc,
                          @Autowired GenreStorage genreStorage,
-                         @Autowired DirectorStorage directorStorage) {
+                         @Autowired DirectorStorage directorStorage,
+                         @Autowired FilmCache filmCache,
+                         @Autowired GenreDictionary genreDictionary,
+                         @Autowired MpaDictionary mpaDictionary,
+                         @Autowired DirectorRegistry directorRegistry) {
         this.jdbc = jdbc;
         this.genreStorage = genreStorage;
         this.directorStorage = directorStorage;
+        this.filmCache = filmCache;
+        this.genreDictionary = genreDictionary;
+        this.mpaDictionary = mpaDictionary;
+        this.directorRegistry = directorRegistry;
+        this.filmRowMapper = new FilmRowMapper(mpaDictionary);
+        this.filmDetailsRowMapper = new FilmDetailsRowMapper(mpaDictionary, genreDictionary, directorRegistry);
     }
 
     /**
@@ -105,7 +174,8 @@ public class FilmDbStorage implements FilmStorage {
                             .addValue("description", newFilm.getDescription())
                             .addValue("releasedate", newFilm.getReleaseDate(), Types.DATE)
                             .addValue("len_min", newFilm.getDuration())
-                            .addValue("mpa_id", newFilm.getMpa().getId()),
+                            .addValue("mpa_id", newFilm.getMpa().getId())
+                            .addValue("genres_key", genresKey(newFilm)),
                     generatedKeyHolder
             );
         } catch (DataAccessException e) {
@@ -128,6 +198,87 @@ public class FilmDbStorage implements FilmStorage {
                 new InternalServerException("Ошибка при добавлении фильма."));
     }
 
+    /**
+     * Пакетное добавление фильмов в одной транзакции.
+     * Фильмы, жанры и режиссеры записываются пакетными запросами, идентификаторы фильмов
+     * берутся из сгенерированных ключей. Рейтинги, жанры и режиссеры проверяются и заполняются
+     * по справочникам до записи, без повторного чтения каждого фильма.
+     *
+     * @param newFilms - список фильмов для добавления
+     * @return - список подтвержденных объектов в порядке входного списка
+     */
+    @Override
+    @Transactional
+    public List<Film> addFilms(List<Film> newFilms) {
+        if (newFilms.isEmpty()) {
+            return List.of();
+        }
+        // заполняем наименования по справочникам, неизвестный идентификатор отклоняет весь пакет
+        for (Film film : newFilms) {
+            resolveDictionaries(film);
+        }
+        SqlParameterSource[] filmsBatch = newFilms.stream()
+                .map(film -> new MapSqlParameterSource()
+                        .addValue("name", film.getName())
+                        .addValue("description", film.getDescription())
+                        .addValue("releasedate", film.getReleaseDate(), Types.DATE)
+                        .addValue("len_min", film.getDuration())
+                        .addValue("mpa_id", film.getMpa().getId())
+                        .addValue("genres_key", genresKey(film)))
+                .toArray(SqlParameterSource[]::new);
+        GeneratedKeyHolder generatedKeyHolder = new GeneratedKeyHolder();
+
+        List<SqlParameterSource> genresBatch = new ArrayList<>();
+        List<SqlParameterSource> directorsBatch = new ArrayList<>();
+        try {
+            jdbc.batchUpdate(SQL_INSERT_FILM, filmsBatch, generatedKeyHolder, new String[]{"id"});
+
+            // идентификаторы возвращаются в порядке строк пакета
+            List<Map<String, Object>> keys = generatedKeyHolder.getKeyList();
+            for (int i = 0; i < newFilms.size(); i++) {
+                Film film = newFilms.get(i);
+                film.setId(((Number) keys.get(i).values().iterator().next()).intValue());
+                for (Genre genre : film.getGenres()) {
+                    genresBatch.add(new MapSqlParameterSource()
+                            .addValue("film_id", film.getId())
+                            .addValue("genre_id", genre.getId()));
+                }
+                for (Director director : film.getDirectors()) {
+                    directorsBatch.add(new MapSqlParameterSource()
+                            .addValue("film_id", film.getId())
+                            .addValue("director_id", director.getId()));
+                }
+            }
+            jdbc.batchUpdate(SQL_INSERT_FILM_GENRE, genresBatch.toArray(SqlParameterSource[]::new));
+            jdbc.batchUpdate(SQL_UPDATE_DIRECTORS, directorsBatch.toArray(SqlParameterSource[]::new));
+        } catch (DataAccessException e) {
+            throw new NotFoundException("Получены недопустимые параметры запроса: " +
+                    e.getMessage());
+        }
+        return newFilms;
+    }
+
+    /**
+     * Замена рейтинга, жанров и режиссеров фильма копиями из справочников.
+     * Отсутствующие жанры и режиссеры считаются пустыми списками.
+     *
+     * @param film - объект описания фильма
+     */
+    private void resolveDictionaries(Film film) {
+        int mpaId = film.getMpa().getId();
+        film.setMpa(mpaDictionary.find(mpaId)
+                .orElseThrow(() -> new NotFoundException("Не найден рейтинг id=" + mpaId)));
+        film.setGenres(film.getGenres() == null ? new LinkedHashSet<>() : film.getGenres().stream()
+                .map(genre -> genreDictionary.find(genre.getId())
+                        .orElseThrow(() -> new NotFoundException("Не найден жанр id=" + genre.getId())))
+                .sorted(Comparator.comparingInt(Genre::getId))
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+        film.setDirectors(film.getDirectors() == null ? new LinkedHashSet<>() : film.getDirectors().stream()
+                .map(director -> directorRegistry.find(director.getId())
+                        .orElseThrow(() -> new NotFoundException("Не найден режиссер. id=" + director.getId())))
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+    }
+
     /**
      * Поиск фильма по идентификатору
      *
@@ -136,20 +287,19 @@ public class FilmDbStorage implements FilmStorage {
      */
     @Override
     public Optional<Film> getFilmById(Integer filmId) {
+        Film cachedFilm = filmCache.get(filmId);
+        if (cachedFilm != null) {
+            return Optional.of(cachedFilm);
+        }
+        long cacheVersion = filmCache.version();
         try {
+            // жанры и режиссеры читаются тем же запросом
             Film film = jdbc.queryForObject(SQL_FIND_FILM_BY_ID,
                     new MapSqlParameterSource()
-
                             .addValue("id", filmId),
-                    new FilmRowMapper());
-
-            // Загружаем список жанров к фильму
-            for (Genre genre : genreStorage.findGenresByFilmId(filmId)) {
-                film.addGenre(genre);
-            }
-            // Загружаем список директоров к фильму
-            for (Director director : directorStorage.findDirectorsByFilmId(filmId)) {
-                film.addDirector(director);
+                    filmDetailsRowMapper);
+            if (film != null) {
+                filmCache.put(film, cacheVersion);
             }
             return Optional.ofNullable(film);
 
@@ -158,23 +308,62 @@ public class FilmDbStorage implements FilmStorage {
         }
     }
 
+    /**
+     * Проверка существования фильма без чтения его сведений
+     *
+     * @param filmId - идентификатор фильма
+     * @return - true, если фильм существует
+     */
+    @Override
+    public boolean existsFilm(Integer filmId) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(SQL_EXISTS_FILM,
+                new MapSqlParameterSource("id", filmId), Boolean.class));
+    }
+
+    /**
+     * Поиск фильма, равного заданному: с тем же названием, датой выпуска, рейтингом MPA и жанрами
+     *
+     * @param film - объект описания фильма
+     * @return - идентификатор найденного фильма
+     */
+    @Override
+    public Optional<Integer> findDuplicateFilmId(Film film) {
+        List<Integer> ids = jdbc.queryForList(SQL_FIND_DUPLICATE_FILM,
+                new MapSqlParameterSource()
+                        .addValue("name", film.getName())
+                        .addValue("releasedate", film.getReleaseDate(), Types.DATE)
+                        .addValue("mpa_id", film.getMpa().getId())
+                        .addValue("genres_key", genresKey(film)),
+                Integer.class);
+        return ids.stream().findFirst();
+    }
+
     /**
      * Поиск фильмов по идентификаторам
      *
      * @param filmsIds - список идентификаторов
-     * @return - список фильмов с соответствющими идентификаторами.
-     * Примечание:
-     * последовательность фильмов в выходном списке не сохраняется
+     * @return - список фильмов с соответствющими идентификаторами
+     * в порядке следования идентификаторов во входном списке.
      */
     @Override
     public Collection<Film> findFilmsByIds(List<Integer> filmsIds) {
+        if (filmsIds.isEmpty()) {
+            return List.of();
+        }
         // Загружаем из базы данных информацию о фильмах
         try {
             List<Film> films = jdbc.query(SQL_FIND_FILMS_BY_IDS,
                     new MapSqlParameterSource()
                             .addValue("films_ids", filmsIds),
-                    new FilmRowMapper());
-            return updateFilmsEnviroment(films);
+                    filmRowMapper);
+            Map<Integer, Film> filmsMap = new HashMap<>();
+            for (Film film : updateFilmsEnviroment(films)) {
+                filmsMap.put(film.getId(), film);
+            }
+            return filmsIds.stream()
+                    .map(filmsMap::get)
+                    .filter(Objects::nonNull)
+                    .toList();
         } catch (EmptyResultDataAccessException ignored) {
             return List.of();
         }
@@ -189,7 +378,62 @@ public class FilmDbStorage implements FilmStorage {
     public Collection<Film> findAllFilms() {
         // Загружаем из базы данных информацию о фильмах
         try {
-            List<Film> films = jdbc.query(SQL_FIND_ALL_FILMS, new FilmRowMapper());
+            List<Film> films = jdbc.query(SQL_FIND_ALL_FILMS, filmRowMapper);
+            return updateFilmsEnviroment(films);
+        } catch (EmptyResultDataAccessException ignored) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Выгрузка всех фильмов в порядке возрастания идентификаторов.
+     * Фильмы собираются из строк одного запроса и передаются получателю по одному,
+     * по мере чтения, без накопления всего каталога в памяти.
+     *
+     * @param consumer - получатель фильмов
+     */
+    @Override
+    public void exportFilms(Consumer<Film> consumer) {
+        Film[] current = new Film[1];
+
+        jdbc.query(SQL_EXPORT_FILMS, new MapSqlParameterSource(), (RowCallbackHandler) resultSet -> {
+            int filmId = resultSet.getInt("id");
+            if (current[0] == null || current[0].getId() != filmId) {
+                // строки следующего фильма - передаем собранный фильм получателю
+                if (current[0] != null) {
+                    consumer.accept(current[0]);
+                }
+                current[0] = filmRowMapper.mapRow(resultSet, resultSet.getRow());
+            }
+            int genreId = resultSet.getInt("genre_id");
+            if (!resultSet.wasNull()) {
+                current[0].addGenre(new Genre(genreId, genreDictionary.getName(genreId)));
+            }
+            int directorId = resultSet.getInt("director_id");
+            if (!resultSet.wasNull()) {
+                current[0].addDirector(new Director(directorId, directorRegistry.getName(directorId)));
+            }
+        });
+        if (current[0] != null) {
+            consumer.accept(current[0]);
+        }
+    }
+
+    /**
+     * Постраничное чтение фильмов в порядке возрастания идентификаторов
+     *
+     * @param after - идентификатор последнего фильма предыдущей страницы, null - с начала списка
+     * @param limit - размер страницы
+     * @return - список фильмов
+     */
+    @Override
+    public Collection<Film> findFilms(Integer after, int limit) {
+        try {
+            List<Film> films = jdbc.query(SQL_FIND_FILMS_PAGE,
+                    new MapSqlParameterSource()
+                            .addValue("after", after == null ? 0 : after)
+                            .addValue("limit", limit),
+                    filmRowMapper);
             return updateFilmsEnviroment(films);
         } catch (EmptyResultDataAccessException ignored) {
             return List.of();
@@ -205,7 +449,51 @@ public class FilmDbStorage implements FilmStorage {
     public Collection<Film> findPopularFilms() {
         List<Film> films;
         try {
-            films = jdbc.query(SQL_FIND_POPULAR_FILMS, new FilmRowMapper());
+            films = jdbc.query(SQL_FIND_POPULAR_FILMS, filmRowMapper);
+            return updateFilmsEnviroment(films);
+        } catch (EmptyResultDataAccessException ignored) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Поиск популярных фильмов с отбором по году выпуска и жанру
+     *
+     * @param year    - год выпуска фильма, null - без отбора
+     * @param genreId - идентификатор жанра, null - без отбора
+     * @param count   - максимальное число фильмов, null - без ограничения
+     * @return - список самых популярных фильмов
+     */
+    @Override
+    public Collection<Film> findPopularFilms(Integer year, Integer genreId, Integer count) {
+        try {
+            List<Film> films = jdbc.query(SQL_FIND_POPULAR_FILMS_FILTERED,
+                    new MapSqlParameterSource()
+                            .addValue("year", year, Types.INTEGER)
+                            .addValue("genre_id", genreId, Types.INTEGER)
+                            .addValue("count", count == null ? Integer.MAX_VALUE : count, Types.INTEGER),
+                    filmRowMapper);
+            return updateFilmsEnviroment(films);
+        } catch (EmptyResultDataAccessException ignored) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Поиск фильмов режиссера
+     *
+     * @param directorId - идентификатор режиссера
+     * @param sortBy     - порядок: "year" - по дате выпуска, иначе - по убыванию числа "лайков"
+     * @return - список фильмов режиссера
+     */
+    @Override
+    public Collection<Film> findFilmsByDirectorId(int directorId, String sortBy) {
+        String sql = "year".equals(sortBy) ? SQL_FIND_DIRECTOR_FILMS_BY_YEAR : SQL_FIND_DIRECTOR_FILMS_BY_LIKES;
+        try {
+            List<Film> films = jdbc.query(sql,
+                    new MapSqlParameterSource()
+                            .addValue("director_id", directorId),
+                    filmRowMapper);
             return updateFilmsEnviroment(films);
         } catch (EmptyResultDataAccessException ignored) {
             return List.of();
@@ -226,6 +514,7 @@ public class FilmDbStorage implements FilmStorage {
         params.addValue("releasedate", updFilm.getReleaseDate(), Types.DATE);
         params.addValue("len_min", updFilm.getDuration());
         params.addValue("mpa_id", updFilm.getMpa().getId());
+        params.addValue("genres_key", genresKey(updFilm));
         params.addValue("id", updFilm.getId());
 
         // обновляем информацию о фильме
@@ -239,45 +528,60 @@ public class FilmDbStorage implements FilmStorage {
 
         // Добавляем режиссеров фильма, если определены новые
         directorStorage.saveFilmDirectors(updFilm);
+
+        filmCache.invalidate(updFilm.getId());
     }
 
     /**
      * Добавление "лайка" к фильму.
+     * Счетчик "лайков" фильма увеличивается в той же транзакции, только если "лайк" действительно добавлен.
      *
      * @param filmId - идентификатор фильма
      * @param userId - идентификатор пользователя
      * @return - число "лайков"
      */
     @Override
+    @Transactional
     public Integer addNewLike(Integer filmId, Integer userId) {
-        int rowsUpdated = jdbc.update(SQL_ADD_LIKE, new MapSqlParameterSource()
+        MapSqlParameterSource params = new MapSqlParameterSource()
                 .addValue("userId", userId)
-                .addValue("filmId", filmId)
-        );
-        if (rowsUpdated == 0) {
-            throw new InternalServerException("Не удалось обновить данные");
+                .addValue("filmId", filmId);
+        int rowsInserted;
+        try {
+            rowsInserted = jdbc.update(SQL_ADD_LIKE, params);
+        } catch (DuplicateKeyException ignored) {
+            // "лайк" одновременно добавлен параллельным запросом
+            rowsInserted = 0;
+        }
+        if (rowsInserted > 0) {
+            changeLikesCount(filmId, rowsInserted);
         }
         return getFilmRank(filmId);
     }
 
     /**
      * Удаление "лайка" у фильма.
+     * Счетчик "лайков" фильма уменьшается в той же транзакции, только если "лайк" действительно удален.
      *
      * @param filmId - идентификатор фильма
      * @param userId - идентификатор пользователя
      * @return - число "лайков"
      */
     @Override
+    @Transactional
     public Integer removeLike(Integer filmId, Integer userId) {
-        jdbc.update(SQL_REMOVE_LIKE, new MapSqlParameterSource()
+        int rowsDeleted = jdbc.update(SQL_REMOVE_LIKE, new MapSqlParameterSource()
                 .addValue("userId", userId)
                 .addValue("filmId", filmId)
         );
+        if (rowsDeleted > 0) {
+            changeLikesCount(filmId, -rowsDeleted);
+        }
         return getFilmRank(filmId);
     }
 
     /**
-     * Подсчет "лайков" фильма.
+     * Чтение числа "лайков" фильма.
      *
      * @param filmId - идентификатор фильма
      * @return - число "лайков"
@@ -285,7 +589,7 @@ public class FilmDbStorage implements FilmStorage {
     @Override
     public Integer getFilmRank(Integer filmId) {
         try {
-            return jdbc.queryForObject("SELECT count(film_id) FROM likes WHERE film_id = :filmId",
+            return jdbc.queryForObject(SQL_GET_LIKES_COUNT,
                     new MapSqlParameterSource()
                             .addValue("filmId", filmId),
                     Integer.class);
@@ -294,6 +598,76 @@ public class FilmDbStorage implements FilmStorage {
         }
     }
 
+    /**
+     * Чтение числа "лайков" фильма без ошибки для удаленного фильма
+     *
+     * @param filmId - идентификатор фильма
+     * @return - число "лайков" или пустой результат, если фильм не найден
+     */
+    @Override
+    public Optional<Integer> findLikesCount(Integer filmId) {
+        return jdbc.queryForList(SQL_GET_LIKES_COUNT, new MapSqlParameterSource("filmId", filmId), Integer.class)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Пересчет счетчиков "лайков" всех фильмов по таблице likes
+     *
+     * @return - число фильмов, у которых счетчик был исправлен
+     */
+    @Override
+    public int rebuildLikesCount() {
+        return jdbc.update(SQL_REBUILD_LIKES_COUNT, new MapSqlParameterSource());
+    }
+
+    /**
+     * Чтение числа "лайков" всех фильмов
+     *
+     * @return - число "лайков" по идентификаторам фильмов
+     */
+    @Override
+    public Map<Integer, Integer> findLikesCounts() {
+        Map<Integer, Integer> likesCounts = new HashMap<>();
+        jdbc.query(SQL_FIND_LIKES_COUNTS, new MapSqlParameterSource(), (RowCallbackHandler) resultSet ->
+                likesCounts.put(resultSet.getInt("id"), resultSet.getInt("likes_count")));
+        return likesCounts;
+    }
+
+    /**
+     * Формирование ключа жанров фильма - упорядоченного списка идентификаторов через запятую.
+     * Для фильма без жанров ключ пустой.
+     *
+     * @param film - объект описания фильма
+     * @return - ключ жанров
+     */
+    private static String genresKey(Film film) {
+        if (film.getGenres() == null) {
+            return "";
+        }
+        return film.getGenres().stream()
+                .map(Genre::getId)
+                .distinct()
+                .sorted()
+                .map(String::valueOf)
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * Изменение счетчика "лайков" фильма
+     *
+     * @param filmId - идентификатор фильма
+     * @param delta  - величина изменения
+     */
+    private void changeLikesCount(Integer filmId, int delta) {
+        int rowsUpdated = jdbc.update(SQL_CHANGE_LIKES_COUNT, new MapSqlParameterSource()
+                .addValue("delta", delta)
+                .addValue("filmId", filmId));
+        if (rowsUpdated == 0) {
+            throw new InternalServerException("Не удалось обновить данные");
+        }
+    }
+
     /**
      * Удаление всех фильмов
      */
@@ -305,6 +679,7 @@ public class FilmDbStorage implements FilmStorage {
         jdbc.update("DELETE FROM films_genres", new MapSqlParameterSource());
         jdbc.update("DELETE FROM films_directors", new MapSqlParameterSource());
         jdbc.update("DELETE FROM films", new MapSqlParameterSource());
+        filmCache.clear();
 
         /*
         jdbc.update(SQL_DELETE_ALL_FROM_TABLE, new MapSqlParameterSource()
@@ -325,37 +700,35 @@ public class FilmDbStorage implements FilmStorage {
     /**
      * Заполнение списка фильмов
      * сопутствующими объектами: жанрами, режиссерами, и т.д.
+     * Связи читаются только для фильмов из списка, порциями по SQL_IN_BATCH_SIZE идентификаторов.
      *
      * @return - коллекция фильмов.
      */
     public Collection<Film> updateFilmsEnviroment(List<Film> films) {
-        try {
-            // Преобразуем список в Map с идентификаторами в качестве ключа
-            LinkedHashMap<Integer, Film> filmsMap = new LinkedHashMap<>();
-            for (int i = 0; i < films.size(); i++) {
-                filmsMap.put(films.get(i).getId(), films.get(i));
-            }
+        // Преобразуем список в Map с идентификаторами в качестве ключа
+        LinkedHashMap<Integer, Film> filmsMap = new LinkedHashMap<>();
+        for (Film film : films) {
+            filmsMap.put(film.getId(), film);
+        }
+        if (filmsMap.isEmpty()) {
+            return List.of();
+        }
+
+        List<Integer> filmsIds = new ArrayList<>(filmsMap.keySet());
+        for (int from = 0; from < filmsIds.size(); from += SQL_IN_BATCH_SIZE) {
+            List<Integer> batch = filmsIds.subList(from, Math.min(from + SQL_IN_BATCH_SIZE, filmsIds.size()));
 
             // пополням фильмы сведениями о жанрах
-            for (FilmGenre filmGenre : genreStorage.findAllFilmWhithGenres()) {
-                int filmId = filmGenre.getFilmId();
-                if (filmsMap.keySet().contains(filmId)) {
-                    filmsMap.get(filmId).addGenre(filmGenre.getGenre());
-                }
+            for (FilmGenre filmGenre : genreStorage.findFilmGenresByFilmIds(batch)) {
+                filmsMap.get(filmGenre.getFilmId()).addGenre(filmGenre.getGenre());
             }
 
             // Пополняем фильмы сведениями о режиссерах
-            for (FilmDirector filmDirector : directorStorage.findAllFilmDirector()) {
-                int filmId = filmDirector.getFilmId();
-                if (filmsMap.keySet().contains(filmId)) {
-                    filmsMap.get(filmId).addDirector(filmDirector.getDirector());
-                }
+            for (FilmDirector filmDirector : directorStorage.findFilmDirectorsByFilmIds(batch)) {
+                filmsMap.get(filmDirector.getFilmId()).addDirector(filmDirector.getDirector());
             }
-            return filmsMap.values();
-
-        } catch (EmptyResultDataAccessException ignored) {
-            return List.of();
         }
+        return filmsMap.values();
     }
 
     /**
@@ -373,7 +746,7 @@ public class FilmDbStorage implements FilmStorage {
                     new MapSqlParameterSource()
                             .addValue("id1", userId1)
                             .addValue("id2", userId2),
-                    new FilmRowMapper());
+                    filmRowMapper);
             return updateFilmsEnviroment(films);
         } catch (EmptyResultDataAccessException ignored) {
             return List.of();
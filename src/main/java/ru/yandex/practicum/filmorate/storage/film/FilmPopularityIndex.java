@@ -0,0 +1,244 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Индекс популярности фильмов в памяти.
+ * Хранит идентификаторы фильмов, упорядоченные по убыванию числа "лайков",
+ * отдельно для всего каталога, для каждого жанра и для каждого года выпуска.
+ */
+@Component
+public class FilmPopularityIndex {
+
+    // порядок фильмов: по убыванию "лайков", при равенстве - по возрастанию идентификатора
+    private static final Comparator<Rank> RANK_ORDER = Comparator.comparingInt(Rank::likes).reversed()
+            .thenComparingInt(Rank::filmId);
+
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final NavigableSet<Rank> allFilms = new TreeSet<>(RANK_ORDER);
+    private final Map<Integer, NavigableSet<Rank>> filmsByGenre = new HashMap<>();
+    private final Map<Integer, NavigableSet<Rank>> filmsByYear = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // номера чтений числа "лайков": более раннее чтение не заменяет более позднее
+    private final AtomicLong versions = new AtomicLong();
+    private volatile boolean ready = false;
+
+    /**
+     * Полное перестроение индекса.
+     * Данные читаются под блокировкой индекса, поэтому изменения, примененные до перестроения,
+     * не перезаписываются более старым состоянием.
+     *
+     * @param allFilms       - источник всех фильмов с жанрами
+     * @param allLikesCounts - источник числа "лайков" по идентификаторам фильмов
+     */
+    public void rebuild(Supplier<Collection<Film>> allFilms, Supplier<Map<Integer, Integer>> allLikesCounts) {
+        lock.writeLock().lock();
+        try {
+            clearAll();
+            long version = versions.incrementAndGet();
+            Collection<Film> films = allFilms.get();
+            Map<Integer, Integer> likesCounts = allLikesCounts.get();
+            for (Film film : films) {
+                add(new Entry(new Rank(film.getId(), likesCounts.getOrDefault(film.getId(), 0)),
+                        releaseYear(film), genreIds(film), version));
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Признак готовности индекса к использованию
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Добавление фильма или обновление его года выпуска и жанров.
+     * Число "лайков" уже известного фильма сохраняется.
+     *
+     * @param film - объект описания фильма
+     */
+    public void putFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            Entry old = remove(film.getId());
+            int likes = old == null ? 0 : old.rank().likes();
+            long version = old == null ? 0 : old.version();
+            add(new Entry(new Rank(film.getId(), likes), releaseYear(film), genreIds(film), version));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Обновление числа "лайков" фильма после его изменения в базе данных.
+     * Счетчик читается до блокировки индекса. Каждое чтение получает номер, и значение применяется,
+     * только если в индексе нет результата более позднего чтения, поэтому при параллельных изменениях
+     * в индексе остается самое новое зафиксированное значение. Фильм, не найденный в базе данных,
+     * удаляется из индекса.
+     *
+     * @param filmId - идентификатор фильма
+     * @param likes  - чтение текущего числа "лайков" из базы данных
+     */
+    public void refreshLikes(Integer filmId, Supplier<Optional<Integer>> likes) {
+        long version = versions.incrementAndGet();
+        Optional<Integer> current = likes.get();
+        lock.writeLock().lock();
+        try {
+            Entry old = entries.get(filmId);
+            if (old == null || old.version() >= version) {
+                return;
+            }
+            remove(filmId);
+            current.ifPresent(count ->
+                    add(new Entry(new Rank(filmId, count), old.year(), old.genreIds(), version)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаление фильма из индекса
+     *
+     * @param filmId - идентификатор фильма
+     */
+    public void removeFilm(Integer filmId) {
+        lock.writeLock().lock();
+        try {
+            remove(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаление всех фильмов из индекса
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            clearAll();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Чтение числа "лайков" фильма
+     *
+     * @param filmId - идентификатор фильма
+     * @return - число "лайков", 0 для неизвестного фильма
+     */
+    public int getLikes(Integer filmId) {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            return entry == null ? 0 : entry.rank().likes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Поиск самых популярных фильмов
+     *
+     * @param year    - год выпуска или null
+     * @param genreId - идентификатор жанра или null
+     * @param count   - максимальное число фильмов
+     * @return - идентификаторы фильмов в порядке убывания популярности
+     */
+    public List<Integer> findPopular(Integer year, Integer genreId, int count) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Rank> byYear = year == null ? null : filmsByYear.getOrDefault(year, Collections.emptyNavigableSet());
+            NavigableSet<Rank> byGenre = genreId == null ? null : filmsByGenre.getOrDefault(genreId, Collections.emptyNavigableSet());
+
+            // просматриваем наименьший из подходящих списков, второе условие проверяем по описанию фильма
+            NavigableSet<Rank> source = allFilms;
+            if (byYear != null && (byGenre == null || byYear.size() <= byGenre.size())) {
+                source = byYear;
+            } else if (byGenre != null) {
+                source = byGenre;
+            }
+
+            List<Integer> result = new ArrayList<>();
+            for (Rank rank : source) {
+                if (result.size() >= count) {
+                    break;
+                }
+                Entry entry = entries.get(rank.filmId());
+                if ((year == null || year.equals(entry.year()))
+                        && (genreId == null || entry.genreIds().contains(genreId))) {
+                    result.add(rank.filmId());
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Entry entry) {
+        entries.put(entry.rank().filmId(), entry);
+        allFilms.add(entry.rank());
+        if (entry.year() != null) {
+            filmsByYear.computeIfAbsent(entry.year(), year -> new TreeSet<>(RANK_ORDER)).add(entry.rank());
+        }
+        for (Integer genreId : entry.genreIds()) {
+            filmsByGenre.computeIfAbsent(genreId, id -> new TreeSet<>(RANK_ORDER)).add(entry.rank());
+        }
+    }
+
+    private Entry remove(Integer filmId) {
+        Entry entry = entries.remove(filmId);
+        if (entry == null) {
+            return null;
+        }
+        allFilms.remove(entry.rank());
+        if (entry.year() != null) {
+            filmsByYear.get(entry.year()).remove(entry.rank());
+        }
+        for (Integer genreId : entry.genreIds()) {
+            filmsByGenre.get(genreId).remove(entry.rank());
+        }
+        return entry;
+    }
+
+    private void clearAll() {
+        entries.clear();
+        allFilms.clear();
+        filmsByGenre.clear();
+        filmsByYear.clear();
+    }
+
+    private static Integer releaseYear(Film film) {
+        return film.getReleaseDate() == null ? null : film.getReleaseDate().getYear();
+    }
+
+    private static Set<Integer> genreIds(Film film) {
+        Set<Integer> ids = new HashSet<>();
+        for (Genre genre : film.getGenres()) {
+            ids.add(genre.getId());
+        }
+        return Set.copyOf(ids);
+    }
+
+    // позиция фильма в упорядоченных списках
+    private record Rank(int filmId, int likes) {
+    }
+
+    // сведения о фильме, необходимые для отбора, и номер чтения, по которому получено число "лайков"
+    private record Entry(Rank rank, Integer year, Set<Integer> genreIds, long version) {
+    }
+}
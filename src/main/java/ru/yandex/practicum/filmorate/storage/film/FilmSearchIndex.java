@@ -0,0 +1,263 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Поисковый индекс в памяти по названиям фильмов и именам режиссеров.
+ * Строки хранятся в нижнем регистре, для каждой строки индексируются все ее триграммы.
+ * Поиск подстроки выполняется пересечением списков триграмм запроса с последующей проверкой кандидатов.
+ */
+@Component
+public class FilmSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private final Map<Integer, String> titles = new HashMap<>();
+    private final Map<String, Set<Integer>> titlesGrams = new HashMap<>();
+    private final Map<Integer, String> directorsNames = new HashMap<>();
+    private final Map<String, Set<Integer>> directorsGrams = new HashMap<>();
+    private final Map<Integer, Set<Integer>> filmsByDirector = new HashMap<>();
+    private final Map<Integer, Set<Integer>> directorsByFilm = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready = false;
+
+    /**
+     * Полное перестроение индекса
+     *
+     * @param films     - все фильмы с режиссерами
+     * @param directors - все режиссеры
+     */
+    public void rebuild(Collection<Film> films, Collection<Director> directors) {
+        lock.writeLock().lock();
+        try {
+            titles.clear();
+            titlesGrams.clear();
+            directorsNames.clear();
+            directorsGrams.clear();
+            filmsByDirector.clear();
+            directorsByFilm.clear();
+            for (Director director : directors) {
+                addDirector(director);
+            }
+            for (Film film : films) {
+                addFilm(film);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Признак готовности индекса к использованию
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Добавление или обновление фильма: названия и списка режиссеров
+     *
+     * @param film - объект описания фильма
+     */
+    public void putFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            removeFilmEntry(film.getId());
+            addFilm(film);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаление фильма из индекса
+     *
+     * @param filmId - идентификатор фильма
+     */
+    public void removeFilm(Integer filmId) {
+        lock.writeLock().lock();
+        try {
+            removeFilmEntry(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Добавление или обновление имени режиссера
+     *
+     * @param director - объект описания режиссера
+     */
+    public void putDirector(Director director) {
+        lock.writeLock().lock();
+        try {
+            removeDirectorName(director.getId());
+            addDirector(director);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаление режиссера и его связей с фильмами
+     *
+     * @param directorId - идентификатор режиссера
+     */
+    public void removeDirector(int directorId) {
+        lock.writeLock().lock();
+        try {
+            removeDirectorName(directorId);
+            Set<Integer> filmsIds = filmsByDirector.remove(directorId);
+            if (filmsIds != null) {
+                for (Integer filmId : filmsIds) {
+                    directorsByFilm.getOrDefault(filmId, new HashSet<>()).remove(directorId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Поиск фильмов по подстроке названия и/или имени режиссера без учета регистра
+     *
+     * @param query          - строка поиска
+     * @param titleSearch    - искать по названию фильма
+     * @param directorSearch - искать по имени режиссера
+     * @return - множество идентификаторов найденных фильмов
+     */
+    public Set<Integer> search(String query, boolean titleSearch, boolean directorSearch) {
+        String text = normalize(query);
+        lock.readLock().lock();
+        try {
+            Set<Integer> result = new HashSet<>();
+            if (titleSearch) {
+                result.addAll(find(text, titles, titlesGrams));
+            }
+            if (directorSearch) {
+                for (Integer directorId : find(text, directorsNames, directorsGrams)) {
+                    result.addAll(filmsByDirector.getOrDefault(directorId, Set.of()));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Поиск строк, содержащих подстроку
+     *
+     * @param text    - подстрока в нижнем регистре
+     * @param strings - индексируемые строки по идентификаторам
+     * @param grams   - списки идентификаторов по триграммам
+     * @return - идентификаторы строк, содержащих подстроку
+     */
+    private static List<Integer> find(String text, Map<Integer, String> strings, Map<String, Set<Integer>> grams) {
+        Collection<Integer> candidates = strings.keySet();
+        if (text.length() >= GRAM_LENGTH) {
+            // пересекаем списки триграмм, начиная с самого короткого: кандидат должен входить во все списки
+            List<Set<Integer>> lists = new ArrayList<>();
+            for (String gram : grams(text)) {
+                Set<Integer> ids = grams.get(gram);
+                if (ids == null) {
+                    return List.of();
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+            List<Integer> intersection = new ArrayList<>();
+            for (Integer id : lists.get(0)) {
+                boolean inAll = true;
+                for (int i = 1; i < lists.size() && inAll; i++) {
+                    inAll = lists.get(i).contains(id);
+                }
+                if (inAll) {
+                    intersection.add(id);
+                }
+            }
+            candidates = intersection;
+        }
+        List<Integer> result = new ArrayList<>();
+        for (Integer id : candidates) {
+            if (strings.get(id).contains(text)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private void addFilm(Film film) {
+        Integer filmId = film.getId();
+        String title = normalize(film.getName());
+        titles.put(filmId, title);
+        for (String gram : grams(title)) {
+            titlesGrams.computeIfAbsent(gram, key -> new HashSet<>()).add(filmId);
+        }
+        Set<Integer> directorsIds = new HashSet<>();
+        for (Director director : film.getDirectors()) {
+            directorsIds.add(director.getId());
+            filmsByDirector.computeIfAbsent(director.getId(), id -> new HashSet<>()).add(filmId);
+        }
+        directorsByFilm.put(filmId, directorsIds);
+    }
+
+    private void removeFilmEntry(Integer filmId) {
+        String title = titles.remove(filmId);
+        if (title != null) {
+            removeGrams(title, filmId, titlesGrams);
+        }
+        Set<Integer> directorsIds = directorsByFilm.remove(filmId);
+        if (directorsIds != null) {
+            for (Integer directorId : directorsIds) {
+                filmsByDirector.getOrDefault(directorId, new HashSet<>()).remove(filmId);
+            }
+        }
+    }
+
+    private void addDirector(Director director) {
+        String name = normalize(director.getName());
+        directorsNames.put(director.getId(), name);
+        for (String gram : grams(name)) {
+            directorsGrams.computeIfAbsent(gram, key -> new HashSet<>()).add(director.getId());
+        }
+    }
+
+    private void removeDirectorName(int directorId) {
+        String name = directorsNames.remove(directorId);
+        if (name != null) {
+            removeGrams(name, directorId, directorsGrams);
+        }
+    }
+
+    private static void removeGrams(String text, Integer id, Map<String, Set<Integer>> grams) {
+        for (String gram : grams(text)) {
+            Set<Integer> ids = grams.get(gram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    grams.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            result.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return result;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+}
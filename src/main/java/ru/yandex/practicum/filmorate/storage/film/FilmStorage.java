@@ -4,24 +4,47 @@ import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     // добавление нового фильма
     Film addNewFilm(Film newFilm);
 
+    // пакетное добавление фильмов
+    List<Film> addFilms(List<Film> newFilms);
+
     // чтение фильма по идентификатору
     Optional<Film> getFilmById(Integer filmId);
 
+    // проверка существования фильма по первичному ключу
+    boolean existsFilm(Integer filmId);
+
+    // поиск идентификатора фильма, равного заданному
+    Optional<Integer> findDuplicateFilmId(Film film);
+
     // чтение фильма по списку идентификаторов
     Collection<Film> findFilmsByIds(List<Integer> filmsIds);
 
     // поиск всех фильмов
     Collection<Film> findAllFilms();
 
+    // выгрузка всех фильмов по одному в порядке возрастания идентификатора
+    void exportFilms(Consumer<Film> consumer);
+
+    // постраничное чтение фильмов по возрастанию идентификатора
+    Collection<Film> findFilms(Integer after, int limit);
+
     // поиск самых популярных фильмов
     Collection<Film> findPopularFilms();
 
+    // поиск самых популярных фильмов с отбором по году и жанру
+    Collection<Film> findPopularFilms(Integer year, Integer genreId, Integer count);
+
+    // поиск фильмов режиссера, упорядоченных по году выпуска или по популярности
+    Collection<Film> findFilmsByDirectorId(int directorId, String sortBy);
+
     // изменение сведений о фильме
     void updateFilm(Film updFilm);
 
@@ -34,6 +57,15 @@ public interface FilmStorage {
     // Чтение числа "лайков" у фильма
     Integer getFilmRank(Integer filmId);
 
+    // Чтение числа "лайков" у фильма, пустой результат - фильм не найден
+    Optional<Integer> findLikesCount(Integer filmId);
+
+    // Чтение числа "лайков" всех фильмов
+    Map<Integer, Integer> findLikesCounts();
+
+    // Пересчет счетчиков "лайков" по таблице likes
+    int rebuildLikesCount();
+
     // Поиск общих фильмов у пользователей
     Collection<Film> findCommonFilms(Integer userId1, Integer userId2);
 
@@ -2,13 +2,11 @@ package ru.yandex.practicum.filmorate.storage.genre;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.mapper.FilmGenreRowMapper;
-import ru.yandex.practicum.filmorate.mapper.GenreRowMapper;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.FilmGenre;
 import ru.yandex.practicum.filmorate.model.Genre;
@@ -20,12 +18,17 @@ import java.util.Optional;
 @Repository
 public class GenreDbStorage implements GenreStorage {
 
-    private static final String SQL_FIND_ALL_FILMS_WHITH_GENRES =
-            "SELECT fg.*, g.name AS genre_name FROM films_genres AS fg INNER JOIN genres AS g ON fg.GENRE_ID = g.ID";
+    // наименования жанров берутся из справочника в памяти, таблица genres не соединяется
+    private static final String SQL_FIND_ALL_FILMS_WHITH_GENRES = "SELECT fg.* FROM films_genres AS fg";
+    private static final String SQL_FIND_FILMS_GENRES_BY_FILMS_IDS = """
+            SELECT fg.* FROM films_genres AS fg
+            WHERE fg.film_id IN (:films_ids)
+            ORDER BY fg.film_id, fg.genre_id
+            """;
     private static final String SQL_FIND_GENRES_BY_FILM_ID = """
-            SELECT fg.film_id, g.*
-            FROM films_genres AS fg INNER JOIN genres AS g ON fg.GENRE_ID = g.ID
+            SELECT fg.* FROM films_genres AS fg
             WHERE fg.film_id = :film_id
+            ORDER BY fg.genre_id
             """;
     private static final String SQL_UPDATE_GENRES = """
             MERGE INTO films_genres (film_id, genre_id)
@@ -33,10 +36,10 @@ public class GenreDbStorage implements GenreStorage {
             """;
     private static final String SQL_REMOVE_FILM_GENRES =
             "DELETE FROM films_genres WHERE film_id = :filmId";
-    private static final String SQL_GET_ALL_GENRES = "SELECT * FROM genres";
-    private static final String SQL_GET_GENRE = "SELECT * FROM genres WHERE id = :id";
     @Autowired
     private NamedParameterJdbcTemplate jdbc;
+    @Autowired
+    private GenreDictionary genreDictionary;
 
     /**
      * Поиск всех связей фильм - жанр
@@ -46,7 +49,28 @@ public class GenreDbStorage implements GenreStorage {
     @Override
     public Collection<FilmGenre> findAllFilmWhithGenres() {
         try {
-            return jdbc.query(SQL_FIND_ALL_FILMS_WHITH_GENRES, new FilmGenreRowMapper());
+            return jdbc.query(SQL_FIND_ALL_FILMS_WHITH_GENRES, new FilmGenreRowMapper(genreDictionary));
+        } catch (DataAccessException ignored) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Поиск связей фильм - жанр для заданных фильмов
+     *
+     * @param filmsIds - список идентификаторов фильмов
+     * @return - список пар {filmId, genre}
+     */
+    @Override
+    public Collection<FilmGenre> findFilmGenresByFilmIds(Collection<Integer> filmsIds) {
+        if (filmsIds.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return jdbc.query(SQL_FIND_FILMS_GENRES_BY_FILMS_IDS,
+                    new MapSqlParameterSource()
+                            .addValue("films_ids", filmsIds),
+                    new FilmGenreRowMapper(genreDictionary));
         } catch (DataAccessException ignored) {
             return List.of();
         }
@@ -64,7 +88,9 @@ public class GenreDbStorage implements GenreStorage {
             return jdbc.query(SQL_FIND_GENRES_BY_FILM_ID,
                     new MapSqlParameterSource()
                             .addValue("film_id", filmId),
-                    new GenreRowMapper());
+                    new FilmGenreRowMapper(genreDictionary)).stream()
+                    .map(FilmGenre::getGenre)
+                    .toList();
         } catch (DataAccessException ignored) {
             return List.of();
         }
@@ -98,15 +124,11 @@ public class GenreDbStorage implements GenreStorage {
     /**
      * Чтение всех жанров в справочнике
      *
-     * @return
+     * @return - список жанров в порядке возрастания идентификатора
      */
     @Override
     public Collection<Genre> findAllGenres() {
-        try {
-            return jdbc.query(SQL_GET_ALL_GENRES, new GenreRowMapper());
-        } catch (EmptyResultDataAccessException ignored) {
-            return List.of();
-        }
+        return genreDictionary.findAll();
     }
 
     /**
@@ -117,14 +139,6 @@ public class GenreDbStorage implements GenreStorage {
      */
     @Override
     public Optional<Genre> findGenre(Integer id) {
-        try {
-            Genre genre = jdbc.queryForObject(SQL_GET_GENRE,
-                    new MapSqlParameterSource()
-                            .addValue("id", id),
-                    new GenreRowMapper());
-            return Optional.ofNullable(genre);
-        } catch (EmptyResultDataAccessException ignored) {
-            return Optional.empty();
-        }
+        return genreDictionary.find(id);
     }
 }
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.storage.genre;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.mapper.GenreRowMapper;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.InMemoryDictionary;
+
+/**
+ * Справочник жанров фильмов в памяти.
+ */
+@Component
+public class GenreDictionary extends InMemoryDictionary<Genre> {
+    private static final String SQL_GET_ALL_GENRES = "SELECT * FROM genres ORDER BY id";
+
+    public GenreDictionary(@Autowired NamedParameterJdbcTemplate jdbc) {
+        super(jdbc, SQL_GET_ALL_GENRES, new GenreRowMapper(), Genre::getId, Genre::getName,
+                genre -> new Genre(genre.getId(), genre.getName()));
+    }
+}
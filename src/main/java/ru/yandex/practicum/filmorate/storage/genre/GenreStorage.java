@@ -12,6 +12,8 @@ public interface GenreStorage {
 
     Collection<FilmGenre> findAllFilmWhithGenres();
 
+    Collection<FilmGenre> findFilmGenresByFilmIds(Collection<Integer> filmsIds);
+
     void saveFilmGeres(Film film);
 
     Collection<Genre> findAllGenres();
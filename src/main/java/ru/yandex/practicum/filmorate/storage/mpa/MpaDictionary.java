@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.storage.mpa;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.mapper.MpaRowMapper;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.InMemoryDictionary;
+
+/**
+ * Справочник рейтингов MPA в памяти.
+ */
+@Component
+public class MpaDictionary extends InMemoryDictionary<Mpa> {
+    private static final String SQL_GET_ALL_MPA = "SELECT * FROM mpa ORDER BY id";
+
+    public MpaDictionary(@Autowired NamedParameterJdbcTemplate jdbc) {
+        super(jdbc, SQL_GET_ALL_MPA, new MpaRowMapper(), Mpa::getId, Mpa::getName,
+                mpa -> new Mpa(mpa.getId(), mpa.getName(), mpa.getDescription()));
+    }
+}
@@ -0,0 +1,282 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Матрица "лайков" в памяти для построения рекомендаций.
+ * Хранит для каждого пользователя множество понравившихся фильмов, а для каждого фильма -
+ * множество пользователей, поставивших "лайк", в виде битовых множеств.
+ * Похожие пользователи определяются по числу общих "лайков", рекомендации кэшируются.
+ * Пользователи, которых затрагивает изменение "лайка", отмечаются для фонового пересчета,
+ * до которого им выдаются прежние рекомендации со временем их расчета.
+ */
+@Component
+public class LikesMatrix {
+
+    private final int neighboursCount;
+    private final Map<Integer, BitSet> filmsByUser = new HashMap<>();
+    private final Map<Integer, BitSet> usersByFilm = new HashMap<>();
+    // рассчитанные рекомендации по идентификаторам пользователей
+    private final Map<Integer, Entry> recommendations = new ConcurrentHashMap<>();
+    // пользователи, рекомендации которых нужно пересчитать
+    private final Set<Integer> dirtyUsers = ConcurrentHashMap.newKeySet();
+    // пользователи, у которых данный пользователь входит в число похожих
+    private final Map<Integer, Set<Integer>> neighbourOf = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // упорядочение чтения и применения изменений одного "лайка"
+    private final StripedLocks likeLocks = new StripedLocks(64);
+    // номер перестроения матрицы: изменение, прочитанное до перестроения, уже учтено им
+    private volatile long generation = 0;
+    private volatile boolean ready = false;
+
+    public LikesMatrix(@Value("${filmorate.recommendations.neighbours:10}") int neighboursCount) {
+        this.neighboursCount = neighboursCount;
+    }
+
+    /**
+     * Полное перестроение матрицы.
+     * Рассчитанные рекомендации сохраняются и отмечаются для фонового пересчета,
+     * рекомендации остальных пользователей рассчитываются при первом запросе.
+     *
+     * @param likes - источник пар {идентификатор пользователя, идентификатор фильма}
+     */
+    public void rebuild(Consumer<BiConsumer<Integer, Integer>> likes) {
+        lock.writeLock().lock();
+        try {
+            filmsByUser.clear();
+            usersByFilm.clear();
+            neighbourOf.clear();
+            dirtyUsers.clear();
+            generation++;
+            likes.accept(this::setLike);
+            // у пользователей без "лайков" рекомендации пусты и дешево рассчитываются при запросе
+            recommendations.keySet().retainAll(filmsByUser.keySet());
+            dirtyUsers.addAll(recommendations.keySet());
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Признак готовности матрицы к использованию
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Обновление "лайка" после его изменения в базе данных.
+     * Наличие "лайка" читается до блокировки матрицы, но под блокировкой этого "лайка", поэтому
+     * при параллельных изменениях последним применяется самое новое зафиксированное состояние,
+     * а чтение из базы данных не задерживает расчет рекомендаций. Рекомендации отмечаются
+     * для пересчета, только если "лайк" действительно изменился.
+     *
+     * @param userId - идентификатор пользователя
+     * @param filmId - идентификатор фильма
+     * @param liked  - чтение наличия "лайка" из базы данных
+     */
+    public void refreshLike(Integer userId, Integer filmId, BooleanSupplier liked) {
+        Lock likeLock = likeLocks.get(userId, filmId);
+        likeLock.lock();
+        try {
+            long readGeneration = generation;
+            boolean current = liked.getAsBoolean();
+            apply(userId, filmId, current, readGeneration);
+        } finally {
+            likeLock.unlock();
+        }
+    }
+
+    private void apply(Integer userId, Integer filmId, boolean current, long readGeneration) {
+        lock.writeLock().lock();
+        try {
+            BitSet films = filmsByUser.get(userId);
+            if (readGeneration != generation || current == (films != null && films.get(filmId))) {
+                return;
+            }
+            if (current) {
+                setLike(userId, filmId);
+                invalidate(userId, filmId);
+            } else {
+                invalidate(userId, filmId);
+                clearBit(filmsByUser, userId, filmId);
+                clearBit(usersByFilm, filmId, userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Рекомендации для пользователя: фильмы, которые понравились наиболее похожим пользователям,
+     * но еще не отмечены самим пользователем.
+     *
+     * Рассчитывается сразу, только если рекомендации пользователя еще не рассчитаны,
+     * устаревшие рекомендации выдаются до их фонового пересчета.
+     *
+     * @param userId - идентификатор пользователя
+     * @return - идентификаторы фильмов в порядке убывания оценки и время расчета
+     */
+    public Recommendation recommend(Integer userId) {
+        lock.readLock().lock();
+        try {
+            Entry cached = recommendations.get(userId);
+            if (cached != null) {
+                return cached.recommendation();
+            }
+            return calculateAndStore(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Пересчет рекомендаций пользователей, отмеченных после изменения "лайков"
+     *
+     * @return - число пользователей, для которых рекомендации пересчитаны
+     */
+    public int refreshDirty() {
+        int refreshed = 0;
+        for (Integer userId : List.copyOf(dirtyUsers)) {
+            // блокировка берется на каждого пользователя, чтобы не задерживать изменение "лайков"
+            lock.readLock().lock();
+            try {
+                if (dirtyUsers.contains(userId)) {
+                    calculateAndStore(userId);
+                    refreshed++;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return refreshed;
+    }
+
+    /**
+     * Расчет и запись рекомендаций в кэш.
+     * Выполняется под блокировкой чтения, поэтому не может пересечься с изменением "лайков".
+     * Параллельные расчеты для одного пользователя возможны, но идемпотентны: при неизменной матрице
+     * они дают одинаковый результат, а записи в кэш и в обратный список похожих пользователей
+     * выполняются в потокобезопасные множества, и каждый расчет сначала снимает прежние связи,
+     * а затем добавляет те же новые.
+     */
+    private Recommendation calculateAndStore(Integer userId) {
+        Entry entry = calculate(userId);
+        Entry old = recommendations.put(userId, entry);
+        dirtyUsers.remove(userId);
+        if (old != null) {
+            for (int neighbourId : old.neighboursIds()) {
+                Set<Integer> dependentUsers = neighbourOf.get(neighbourId);
+                if (dependentUsers != null) {
+                    dependentUsers.remove(userId);
+                }
+            }
+        }
+        for (int neighbourId : entry.neighboursIds()) {
+            neighbourOf.computeIfAbsent(neighbourId, id -> ConcurrentHashMap.newKeySet()).add(userId);
+        }
+        return entry.recommendation();
+    }
+
+    private Entry calculate(Integer userId) {
+        BitSet liked = filmsByUser.get(userId);
+        if (liked == null || liked.isEmpty()) {
+            return new Entry(new Recommendation(List.of(), Instant.now()), new int[0]);
+        }
+
+        // число общих "лайков" с каждым пользователем, отметившим хотя бы один фильм пользователя
+        Map<Integer, Integer> similarity = new HashMap<>();
+        for (int filmId = liked.nextSetBit(0); filmId >= 0; filmId = liked.nextSetBit(filmId + 1)) {
+            BitSet users = usersByFilm.get(filmId);
+            for (int otherId = users.nextSetBit(0); otherId >= 0; otherId = users.nextSetBit(otherId + 1)) {
+                if (otherId != userId) {
+                    similarity.merge(otherId, 1, Integer::sum);
+                }
+            }
+        }
+
+        // наиболее похожие пользователи
+        int[] neighboursIds = similarity.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(neighboursCount)
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+
+        // оценка фильма - сумма сходства похожих пользователей, которым он понравился
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (int neighbourId : neighboursIds) {
+            BitSet unseen = (BitSet) filmsByUser.get(neighbourId).clone();
+            unseen.andNot(liked);
+            int weight = similarity.get(neighbourId);
+            for (int filmId = unseen.nextSetBit(0); filmId >= 0; filmId = unseen.nextSetBit(filmId + 1)) {
+                scores.merge(filmId, weight, Integer::sum);
+            }
+        }
+        List<Integer> filmsIds = scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .toList();
+        return new Entry(new Recommendation(filmsIds, Instant.now()), neighboursIds);
+    }
+
+    /**
+     * Отметка для пересчета рекомендаций, которые могут измениться при изменении "лайка":
+     * самого пользователя, пользователей, отметивших тот же фильм (меняется их сходство с пользователем),
+     * и пользователей, у которых он входит в число похожих. Прежние рекомендации сохраняются до пересчета.
+     */
+    private void invalidate(Integer userId, Integer filmId) {
+        Set<Integer> affected = new HashSet<>();
+        affected.add(userId);
+        BitSet users = usersByFilm.get(filmId);
+        if (users != null) {
+            users.stream().forEach(affected::add);
+        }
+        affected.addAll(neighbourOf.getOrDefault(userId, Set.of()));
+        // рекомендации пользователей, которые их еще не запрашивали, рассчитываются при первом запросе
+        affected.retainAll(recommendations.keySet());
+        dirtyUsers.addAll(affected);
+    }
+
+    private void setLike(Integer userId, Integer filmId) {
+        filmsByUser.computeIfAbsent(userId, id -> new BitSet()).set(filmId);
+        usersByFilm.computeIfAbsent(filmId, id -> new BitSet()).set(userId);
+    }
+
+    private static void clearBit(Map<Integer, BitSet> sets, Integer key, int bit) {
+        BitSet set = sets.get(key);
+        if (set != null) {
+            set.clear(bit);
+            if (set.isEmpty()) {
+                sets.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Рекомендации пользователя
+     *
+     * @param filmsIds   - идентификаторы фильмов в порядке убывания оценки
+     * @param computedAt - время расчета
+     */
+    public record Recommendation(List<Integer> filmsIds, Instant computedAt) {
+    }
+
+    // рассчитанные рекомендации и похожие пользователи, по которым они получены
+    private record Entry(Recommendation recommendation, int[] neighboursIds) {
+    }
+}
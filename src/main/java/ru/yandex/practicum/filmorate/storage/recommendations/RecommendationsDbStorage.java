@@ -2,22 +2,24 @@ package ru.yandex.practicum.filmorate.storage.recommendations;
 
 import lombok.AllArgsConstructor;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.mapper.FilmRowMapper;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDictionary;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 @Repository
 @AllArgsConstructor
 public class RecommendationsDbStorage implements RecommendationsStorage {
     private static final String SQL_FIND_ALL_FILMS = """
-            SELECT films.*,
-            mpa.NAME as mpa_name
+            SELECT films.*
             from
             (SELECT DISTINCT film_id
             FROM LIKES l
@@ -40,10 +42,13 @@ public class RecommendationsDbStorage implements RecommendationsStorage {
             						FROM LIKES l2
             						WHERE USER_ID=:userId))
             left join FILMS ON FILM_ID =FILMs.ID
-            LEFT JOIN MPA ON MPA_ID =mpa.ID
             """;
+    private static final String SQL_FIND_ALL_LIKES = "SELECT user_id, film_id FROM likes";
+    private static final String SQL_EXISTS_LIKE =
+            "SELECT EXISTS (SELECT 1 FROM likes WHERE user_id = :userId AND film_id = :filmId)";
     private final NamedParameterJdbcTemplate jdbc;
     private final FilmDbStorage filmDbStorage;
+    private final MpaDictionary mpaDictionary;
 
     /**
      * Поиск всех фильмов
@@ -55,12 +60,37 @@ public class RecommendationsDbStorage implements RecommendationsStorage {
         try {
             List<Film> films = jdbc.query(SQL_FIND_ALL_FILMS, new MapSqlParameterSource()
                             .addValue("userId", userId),
-                    new FilmRowMapper());
+                    new FilmRowMapper(mpaDictionary));
             return filmDbStorage.updateFilmsEnviroment(films);
         } catch (EmptyResultDataAccessException ignored) {
             return List.of();
         }
     }
 
+    /**
+     * Чтение всех "лайков"
+     *
+     * @param consumer - получатель пар {идентификатор пользователя, идентификатор фильма}
+     */
+    @Override
+    public void findAllLikes(BiConsumer<Integer, Integer> consumer) {
+        jdbc.query(SQL_FIND_ALL_LIKES, new MapSqlParameterSource(), (RowCallbackHandler) resultSet ->
+                consumer.accept(resultSet.getInt("user_id"), resultSet.getInt("film_id")));
+    }
+
+    /**
+     * Проверка наличия "лайка"
+     *
+     * @param userId - идентификатор пользователя
+     * @param filmId - идентификатор фильма
+     * @return - true, если пользователь поставил фильму "лайк"
+     */
+    @Override
+    public boolean existsLike(Integer userId, Integer filmId) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(SQL_EXISTS_LIKE, new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("filmId", filmId), Boolean.class));
+    }
+
 
 }
@@ -3,11 +3,17 @@ package ru.yandex.practicum.filmorate.storage.recommendations;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.Collection;
+import java.util.function.BiConsumer;
 
 public interface RecommendationsStorage {
 
     // чтение фильма по списку идентификаторов
     Collection<Film> getFilmsRecommendationsByUserId(Integer userId);
 
+    // чтение всех "лайков" парами {пользователь, фильм}
+    void findAllLikes(BiConsumer<Integer, Integer> consumer);
+
+    // проверка наличия "лайка" пользователя у фильма
+    boolean existsLike(Integer userId, Integer filmId);
 
 }
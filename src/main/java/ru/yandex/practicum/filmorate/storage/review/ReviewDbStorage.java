@@ -3,15 +3,20 @@ package ru.yandex.practicum.filmorate.storage.review;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.mapper.ReviewRowMapper;
 import ru.yandex.practicum.filmorate.model.Review;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -24,34 +29,28 @@ public class ReviewDbStorage implements ReviewStorage {
     private static final String SQL_UPDATE_REVIEW = "UPDATE reviews SET content = :content, " +
             "is_positive = :is_positive WHERE review_id = :review_id";
     private static final String SQL_SELECT_REVIEW_BY_ID = "SELECT * FROM reviews WHERE review_id = :review_id";
-    private static final String SQL_SELECT_REVIEWS_BY_FILM_ID = "SELECT r.* FROM reviews r " +
-            "WHERE r.film_id = IFNULL(:film_id, r.film_id) AND r.useful IN ( " +
-            "SELECT r2.useful FROM reviews r2 WHERE r2.film_id = r.film_id ORDER BY r2.useful DESC " +
-            "LIMIT :count ) ORDER BY r.useful DESC LIMIT :count";
+    // выборка отзывов по индексу (film_id, useful DESC, review_id) или (useful DESC, review_id)
+    private static final String SQL_SELECT_REVIEWS = "SELECT * FROM reviews";
+    private static final String SQL_REVIEWS_FILM_CONDITION = "film_id = :film_id";
+    private static final String SQL_REVIEWS_AFTER_CONDITION = "useful <= :useful " +
+            "AND (useful < :useful OR review_id > :review_id)";
+    private static final String SQL_REVIEWS_ORDER = " ORDER BY useful DESC, review_id LIMIT :count";
     private static final String SQL_DELETE_FEEDBACK = "DELETE FROM feedbacks " +
             "WHERE reviewid_id = :reviewid_id AND user_id = :user_id";
-    private static final String SQL_INSERT_REVIEW_LIKE = "INSERT INTO feedbacks (reviewid_id, user_id, is_like) " +
-            "VALUES (:reviewid_id, :user_id, :is_like)";
-    private static final String SQL_UPDATE_RATING_REVIEW_LIKE = "UPDATE reviews SET useful=useful+1 " +
-            "WHERE review_id = :review_id";
-    private static final String SQL_UPDATE_FEEDBACK_DISLIKE_LIKE = "UPDATE feedbacks SET is_like=:is_like " +
-            "WHERE reviewid_id=:reviewid_id AND user_id=:user_id";
-    private static final String SQL_UPDATE_REVIEW_DISLIKE_LIKE = "UPDATE reviews SET useful=useful+2 " +
-            "WHERE review_id = :review_id";
-    private static final String SQL_INSERT_REVIEW_DISLIKE = "INSERT INTO feedbacks (reviewid_id, user_id, is_like) " +
-            "VALUES (:reviewid_id, :user_id, :is_like)";
-    private static final String SQL_UPDATE_RATING_REVIEW_DISLIKE = "UPDATE reviews SET useful=useful-1 " +
-            "WHERE review_id = :review_id";
-    private static final String SQL_UPDATE_FEEDBACK_LIKE_DISLIKE = "UPDATE feedbacks SET is_like=:is_like WHERE " +
-            "reviewid_id=:reviewid_id AND user_id=:user_id";
-    private static final String SQL_UPDATE_REVIEW_LIKE_DISLIKE = "UPDATE reviews SET useful=useful-2 WHERE " +
-            "review_id = :review_id";
+    private static final String SQL_SELECT_REVIEW_FOR_UPDATE = "SELECT * FROM reviews " +
+            "WHERE review_id = :review_id FOR UPDATE";
     private static final String SQL_SELECT_FEEDBACK_BY_REVIEWID_ID_AND_USER_ID = "SELECT is_like FROM feedbacks " +
             "WHERE reviewid_id = :reviewid_id AND user_id = :user_id";
-    private static final String SQL_DELETE_FEEDBACK_DISLIKE = "UPDATE reviews SET useful=useful+1 " +
-            "WHERE review_id = :review_id";
-    private static final String SQL_DELETE_FEEDBACK_LIKE = "UPDATE reviews SET useful=useful-1 " +
+    private static final String SQL_MERGE_FEEDBACK = "MERGE INTO feedbacks (reviewid_id, user_id, is_like) " +
+            "KEY (reviewid_id, user_id) VALUES (:reviewid_id, :user_id, :is_like)";
+    private static final String SQL_UPDATE_USEFUL = "UPDATE reviews SET useful = useful + :delta " +
             "WHERE review_id = :review_id";
+    private static final String SQL_SELECT_ALL_REVIEWS = "SELECT * FROM reviews";
+    // рейтинг полезности по оценкам пользователей
+    private static final String SQL_FEEDBACKS_USEFUL = "(SELECT COALESCE(SUM(CASE WHEN f.is_like THEN 1 ELSE -1 END), 0) " +
+            "FROM feedbacks f WHERE f.reviewid_id = r.review_id)";
+    private static final String SQL_REPAIR_USEFUL = "UPDATE reviews r SET useful = " + SQL_FEEDBACKS_USEFUL +
+            " WHERE useful <> " + SQL_FEEDBACKS_USEFUL;
     private static final String SQL_SELECT_CHECK_FEEDBACK = "SELECT reviewid_id FROM feedbacks " +
             "WHERE reviewid_id = :reviewid_id AND user_id = :user_id";
 
@@ -148,18 +147,33 @@ public class ReviewDbStorage implements ReviewStorage {
     }
 
     /**
-     * Возвращает список отзывов из базы данных для заданного фильма.
+     * Возвращает список отзывов из базы данных для заданного фильма
+     * в порядке убывания рейтинга полезности (при равном рейтинге - в порядке идентификаторов).
      *
-     * @param filmId Идентификатор фильма, для которого нужно получить список отзывов.
-     * @param count  Количество отзывов, которое нужно получить.
+     * @param filmId        Идентификатор фильма, для которого нужно получить список отзывов, null - все фильмы.
+     * @param count         Количество отзывов, которое нужно получить.
+     * @param afterUseful   Рейтинг последнего отзыва предыдущей страницы, null - с начала списка.
+     * @param afterReviewId Идентификатор последнего отзыва предыдущей страницы.
      * @return Список объектов Review, содержащих информацию об отзывах.
      */
     @Override
-    public Collection<Review> getReviews(Integer filmId, Integer count) {
+    public Collection<Review> getReviews(Integer filmId, Integer count, Integer afterUseful, Integer afterReviewId) {
+        List<String> conditions = new ArrayList<>();
+        if (filmId != null) {
+            conditions.add(SQL_REVIEWS_FILM_CONDITION);
+        }
+        if (afterUseful != null) {
+            conditions.add(SQL_REVIEWS_AFTER_CONDITION);
+        }
+        String sql = SQL_SELECT_REVIEWS
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + SQL_REVIEWS_ORDER;
         try {
-            return jdbc.query(SQL_SELECT_REVIEWS_BY_FILM_ID,
+            return jdbc.query(sql,
                     new MapSqlParameterSource()
                             .addValue("film_id", filmId)
+                            .addValue("useful", afterUseful)
+                            .addValue("review_id", afterReviewId)
                             .addValue("count", count), reviewRowMapper);
         } catch (DataAccessException ignored) {
             throw new InternalServerException("Ошибка при получении списка отзывов для фильма.");
@@ -173,32 +187,9 @@ public class ReviewDbStorage implements ReviewStorage {
      * @param userId     Идентификатор пользователя, который добавляет Like.
      */
     @Override
+    @Transactional
     public Review addLike(Integer reviewIdId, Integer userId) {
-        try {
-            if (!containsFeedback(reviewIdId, userId)) {
-                jdbc.update(SQL_INSERT_REVIEW_LIKE,
-                        new MapSqlParameterSource()
-                                .addValue("reviewid_id", reviewIdId)
-                                .addValue("user_id", userId)
-                                .addValue("is_like", true));
-                jdbc.update(SQL_UPDATE_RATING_REVIEW_LIKE,
-                        new MapSqlParameterSource()
-                                .addValue("review_id", reviewIdId));
-            } else {
-                jdbc.update(SQL_UPDATE_FEEDBACK_DISLIKE_LIKE,
-                        new MapSqlParameterSource()
-                                .addValue("reviewid_id", reviewIdId)
-                                .addValue("user_id", userId)
-                                .addValue("is_like", true));
-                jdbc.update(SQL_UPDATE_REVIEW_DISLIKE_LIKE,
-                        new MapSqlParameterSource()
-                                .addValue("review_id", reviewIdId));
-            }
-        } catch (
-                DataAccessException e) {
-            throw new InternalServerException("Ошибка при добавлении Like для отзыва.");
-        }
-        return getReviewById(reviewIdId).get();
+        return vote(reviewIdId, userId, true);
     }
 
     /**
@@ -208,32 +199,9 @@ public class ReviewDbStorage implements ReviewStorage {
      * @param userId     Идентификатор пользователя, который добавляет Dislike.
      */
     @Override
+    @Transactional
     public Review addDisLike(Integer reviewIdId, Integer userId) {
-        try {
-            if (!containsFeedback(reviewIdId, userId)) {
-                jdbc.update(SQL_INSERT_REVIEW_DISLIKE,
-                        new MapSqlParameterSource()
-                                .addValue("reviewid_id", reviewIdId)
-                                .addValue("user_id", userId)
-                                .addValue("is_like", false));
-                jdbc.update(SQL_UPDATE_RATING_REVIEW_DISLIKE,
-                        new MapSqlParameterSource()
-                                .addValue("review_id", reviewIdId));
-            } else {
-                jdbc.update(SQL_UPDATE_FEEDBACK_LIKE_DISLIKE,
-                        new MapSqlParameterSource()
-                                .addValue("reviewid_id", reviewIdId)
-                                .addValue("user_id", userId)
-                                .addValue("is_like", false));
-                jdbc.update(SQL_UPDATE_REVIEW_LIKE_DISLIKE,
-                        new MapSqlParameterSource()
-                                .addValue("review_id", reviewIdId));
-            }
-        } catch (
-                DataAccessException e) {
-            throw new InternalServerException("Ошибка при добавлении Like для отзыва.");
-        }
-        return getReviewById(reviewIdId).get();
+        return vote(reviewIdId, userId, false);
     }
 
     /**
@@ -243,32 +211,84 @@ public class ReviewDbStorage implements ReviewStorage {
      * @param userId     Идентификатор пользователя, который удаляет Like/Dislike.
      */
     @Override
+    @Transactional
     public Review deleteFeedback(Integer reviewIdId, Integer userId) {
+        return vote(reviewIdId, userId, null);
+    }
+
+    /**
+     * Изменение оценки отзыва пользователем.
+     * Строка отзыва блокируется до конца транзакции, поэтому параллельные оценки одного отзыва
+     * выполняются последовательно и рейтинг useful всегда равен разности Like и Dislike.
+     * Рейтинг изменяется на разность новой и прежней оценки, отзыв повторно не читается.
+     *
+     * @param reviewIdId Идентификатор отзыва.
+     * @param userId     Идентификатор пользователя.
+     * @param isLike     true - Like, false - Dislike, null - удаление оценки.
+     * @return Отзыв с измененным рейтингом.
+     */
+    private Review vote(Integer reviewIdId, Integer userId, Boolean isLike) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("review_id", reviewIdId)
+                .addValue("reviewid_id", reviewIdId)
+                .addValue("user_id", userId)
+                .addValue("is_like", isLike);
         try {
+            Review review = jdbc.query(SQL_SELECT_REVIEW_FOR_UPDATE, parameters, reviewRowMapper).stream()
+                    .findFirst()
+                    .orElseThrow(() -> new NotFoundException("Не найден отзыв с id=" + reviewIdId));
+            Boolean previous = jdbc.queryForList(SQL_SELECT_FEEDBACK_BY_REVIEWID_ID_AND_USER_ID,
+                    parameters, Boolean.class).stream().findFirst().orElse(null);
 
+            if (isLike == null) {
+                if (previous == null) {
+                    throw new NotFoundException("Для отзыва с id=" + reviewIdId +
+                            " не найдена оценка пользователя с id=" + userId);
+                }
+                jdbc.update(SQL_DELETE_FEEDBACK, parameters);
+            } else if (!isLike.equals(previous)) {
+                jdbc.update(SQL_MERGE_FEEDBACK, parameters);
+            }
 
-            boolean change = Boolean.TRUE.equals(jdbc.queryForObject(SQL_SELECT_FEEDBACK_BY_REVIEWID_ID_AND_USER_ID,
-                    new MapSqlParameterSource()
-                            .addValue("reviewid_id", reviewIdId)
-                            .addValue("user_id", userId),
-                    Boolean.class));
-            jdbc.update(SQL_DELETE_FEEDBACK,
-                    new MapSqlParameterSource()
-                            .addValue("reviewid_id", reviewIdId)
-                            .addValue("user_id", userId));
-            if (!change) {
-                jdbc.update(SQL_DELETE_FEEDBACK_DISLIKE,
-                        new MapSqlParameterSource()
-                                .addValue("review_id", reviewIdId));
-            } else {
-                jdbc.update(SQL_DELETE_FEEDBACK_LIKE,
-                        new MapSqlParameterSource()
-                                .addValue("review_id", reviewIdId));
+            int delta = usefulness(isLike) - usefulness(previous);
+            if (delta != 0) {
+                jdbc.update(SQL_UPDATE_USEFUL, parameters.addValue("delta", delta));
+                review.setUseful(review.getUseful() + delta);
             }
-        } catch (DataAccessException ignored) {
-            throw new InternalServerException("Ошибка при удалении Like/Dislike для отзыва.");
+            return review;
+        } catch (DataIntegrityViolationException e) {
+            throw new NotFoundException("Не найден пользователь с id=" + userId);
+        } catch (DataAccessException e) {
+            throw new InternalServerException("Ошибка при изменении оценки отзыва.");
+        }
+    }
+
+    // вклад оценки в рейтинг отзыва
+    private static int usefulness(Boolean isLike) {
+        if (isLike == null) {
+            return 0;
         }
-        return getReviewById(reviewIdId).get();
+        return isLike ? 1 : -1;
+    }
+
+    /**
+     * Возвращает все отзывы из базы данных.
+     *
+     * @return Список объектов Review.
+     */
+    @Override
+    public Collection<Review> findAllReviews() {
+        return jdbc.query(SQL_SELECT_ALL_REVIEWS, reviewRowMapper);
+    }
+
+    /**
+     * Приводит рейтинг полезности отзывов в соответствие с оценками пользователей.
+     *
+     * @return Количество исправленных отзывов.
+     */
+    @Override
+    public int repairUseful() {
+        return jdbc.update(SQL_REPAIR_USEFUL, new MapSqlParameterSource());
     }
 
     /**
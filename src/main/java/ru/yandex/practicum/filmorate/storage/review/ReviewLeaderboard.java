@@ -0,0 +1,161 @@
+package ru.yandex.practicum.filmorate.storage.review;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Review;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Рейтинг отзывов в памяти.
+ * Для каждого фильма (и для всех фильмов вместе) хранит отзывы упорядоченными по убыванию
+ * полезности, при равной полезности - по возрастанию идентификатора, как и запрос к базе данных.
+ * При изменении полезности отзыв перемещается в упорядоченных множествах без пересортировки.
+ * Рейтинг обновляется после фиксации изменений отзыва чтением его из базы данных.
+ */
+@Component
+public class ReviewLeaderboard {
+    private static final Comparator<Position> ORDER = Comparator.comparingInt(Position::useful).reversed()
+            .thenComparingInt(Position::reviewId);
+
+    private final Map<Integer, Review> reviews = new HashMap<>();
+    private final Map<Integer, NavigableSet<Position>> byFilm = new HashMap<>();
+    private final NavigableSet<Position> all = new TreeSet<>(ORDER);
+    // номера чтений отзывов, примененных к рейтингу: более раннее чтение не заменяет более позднее
+    private final Map<Integer, Long> versions = new HashMap<>();
+    private final AtomicLong readVersions = new AtomicLong();
+    // номер чтения, с которым выполнено последнее перестроение
+    private long rebuildVersion = 0;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready = false;
+
+    /**
+     * Полное перестроение рейтинга.
+     * Отзывы читаются под блокировкой рейтинга, поэтому изменения, примененные до перестроения,
+     * не перезаписываются более старым состоянием.
+     *
+     * @param allReviews - источник всех отзывов
+     */
+    public void rebuild(Supplier<Collection<Review>> allReviews) {
+        lock.writeLock().lock();
+        try {
+            reviews.clear();
+            byFilm.clear();
+            all.clear();
+            versions.clear();
+            rebuildVersion = readVersions.incrementAndGet();
+            allReviews.get().forEach(this::add);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Признак готовности рейтинга к использованию
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Обновление отзыва после его добавления, изменения, оценки или удаления в базе данных.
+     * Вызывается после фиксации изменения, поэтому отмененное изменение в рейтинг не попадает.
+     * Отзыв читается до блокировки рейтинга. Каждое чтение получает номер, и результат применяется,
+     * только если для отзыва еще не применен результат более позднего чтения, поэтому при параллельных
+     * изменениях в рейтинге остается самое новое зафиксированное состояние. Отзыв, не найденный
+     * в базе данных, удаляется из рейтинга.
+     *
+     * @param reviewId - идентификатор отзыва
+     * @param review   - чтение отзыва из базы данных
+     */
+    public void refresh(Integer reviewId, Supplier<Optional<Review>> review) {
+        long version = readVersions.incrementAndGet();
+        Optional<Review> current = review.get();
+        lock.writeLock().lock();
+        try {
+            if (version <= rebuildVersion || version <= versions.getOrDefault(reviewId, 0L)) {
+                return;
+            }
+            // номер сохраняется и для удаленного отзыва, чтобы более раннее чтение не вернуло его в рейтинг
+            versions.put(reviewId, version);
+            delete(reviewId);
+            current.ifPresent(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Страница рейтинга отзывов
+     *
+     * @param filmId        - идентификатор фильма, null - все фильмы
+     * @param count         - размер страницы
+     * @param afterUseful   - полезность последнего отзыва предыдущей страницы, null - с начала рейтинга
+     * @param afterReviewId - идентификатор последнего отзыва предыдущей страницы
+     * @return - копии отзывов в порядке убывания полезности
+     */
+    public List<Review> top(Integer filmId, int count, Integer afterUseful, Integer afterReviewId) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Position> positions = filmId == null ? all : byFilm.get(filmId);
+            if (positions == null) {
+                return List.of();
+            }
+            if (afterUseful != null) {
+                positions = positions.tailSet(new Position(afterUseful, afterReviewId, null), false);
+            }
+            return positions.stream()
+                    .limit(count)
+                    .map(position -> copy(reviews.get(position.reviewId())))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Review review) {
+        Review stored = copy(review);
+        Position position = Position.of(stored);
+        reviews.put(stored.getReviewId(), stored);
+        byFilm.computeIfAbsent(stored.getFilmId(), id -> new TreeSet<>(ORDER)).add(position);
+        all.add(position);
+    }
+
+    private void delete(Integer reviewId) {
+        Review stored = reviews.remove(reviewId);
+        if (stored == null) {
+            return;
+        }
+        Position position = Position.of(stored);
+        all.remove(position);
+        NavigableSet<Position> filmPositions = byFilm.get(stored.getFilmId());
+        if (filmPositions != null) {
+            filmPositions.remove(position);
+            if (filmPositions.isEmpty()) {
+                byFilm.remove(stored.getFilmId());
+            }
+        }
+    }
+
+    private static Review copy(Review review) {
+        Review copy = new Review();
+        copy.setReviewId(review.getReviewId());
+        copy.setContent(review.getContent());
+        copy.setIsPositive(review.getIsPositive());
+        copy.setFilmId(review.getFilmId());
+        copy.setUserId(review.getUserId());
+        copy.setUseful(review.getUseful());
+        return copy;
+    }
+
+    // положение отзыва в рейтинге
+    private record Position(int useful, int reviewId, Integer filmId) {
+        static Position of(Review review) {
+            return new Position(review.getUseful(), review.getReviewId(), review.getFilmId());
+        }
+    }
+}
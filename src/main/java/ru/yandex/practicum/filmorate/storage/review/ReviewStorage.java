@@ -15,7 +15,7 @@ public interface ReviewStorage {
 
     Optional<Review> getReviewById(Integer reviewId);
 
-    Collection<Review> getReviews(Integer filmId, Integer count);
+    Collection<Review> getReviews(Integer filmId, Integer count, Integer afterUseful, Integer afterReviewId);
 
     Review addLike(Integer reviewIdId, Integer userId);
 
@@ -24,4 +24,8 @@ public interface ReviewStorage {
     Review deleteFeedback(Integer reviewIdId, Integer userId);
 
     boolean containsFeedback(Integer reviewIdId, Integer userId);
+
+    Collection<Review> findAllReviews();
+
+    int repairUseful();
 }
\ No newline at end of file
@@ -0,0 +1,185 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Граф "дружбы" пользователей в памяти.
+ * Для каждого пользователя хранит множество его друзей в виде битового множества,
+ * поэтому общие друзья находятся пересечением множеств, а друзья друзей - их объединением.
+ * "Дружба" односторонняя, как и в таблице friends.
+ */
+@Component
+public class FriendsGraph {
+
+    private final Map<Integer, BitSet> friendsOf = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // упорядочение чтения и применения изменений одной "дружбы"
+    private final StripedLocks friendshipLocks = new StripedLocks(64);
+    // номер перестроения графа: изменение, прочитанное до перестроения, уже учтено им
+    private volatile long generation = 0;
+    private volatile boolean ready = false;
+
+    /**
+     * Полное перестроение графа
+     *
+     * @param friendships - источник пар {идентификатор пользователя, идентификатор друга}
+     */
+    public void rebuild(Consumer<BiConsumer<Integer, Integer>> friendships) {
+        lock.writeLock().lock();
+        try {
+            friendsOf.clear();
+            generation++;
+            friendships.accept(this::link);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Признак готовности графа к использованию
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Обновление "дружбы" после ее изменения в базе данных.
+     * Наличие "дружбы" читается до блокировки графа, но под блокировкой этой пары пользователей,
+     * поэтому при параллельных изменениях последним применяется самое новое зафиксированное состояние,
+     * а чтение из базы данных не задерживает запросы к графу.
+     *
+     * @param userId   - идентификатор пользователя
+     * @param friendId - идентификатор друга
+     * @param isFriend - чтение наличия "дружбы" из базы данных
+     */
+    public void refreshFriend(Integer userId, Integer friendId, BooleanSupplier isFriend) {
+        Lock friendshipLock = friendshipLocks.get(userId, friendId);
+        friendshipLock.lock();
+        try {
+            long readGeneration = generation;
+            boolean current = isFriend.getAsBoolean();
+            apply(userId, friendId, current, readGeneration);
+        } finally {
+            friendshipLock.unlock();
+        }
+    }
+
+    private void apply(Integer userId, Integer friendId, boolean current, long readGeneration) {
+        lock.writeLock().lock();
+        try {
+            if (readGeneration != generation) {
+                return;
+            }
+            if (current) {
+                link(userId, friendId);
+                return;
+            }
+            BitSet friends = friendsOf.get(userId);
+            if (friends != null) {
+                friends.clear(friendId);
+                if (friends.isEmpty()) {
+                    friendsOf.remove(userId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Друзья пользователя
+     *
+     * @param userId - идентификатор пользователя
+     * @return - идентификаторы друзей по возрастанию
+     */
+    public List<Integer> friends(Integer userId) {
+        lock.readLock().lock();
+        try {
+            return toList(friendsOf.get(userId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Общие друзья двух пользователей
+     *
+     * @param id1 - идентификатор пользователя
+     * @param id2 - идентификатор другого пользователя
+     * @return - идентификаторы общих друзей по возрастанию
+     */
+    public List<Integer> commonFriends(Integer id1, Integer id2) {
+        lock.readLock().lock();
+        try {
+            BitSet friends1 = friendsOf.get(id1);
+            BitSet friends2 = friendsOf.get(id2);
+            if (friends1 == null || friends2 == null) {
+                return List.of();
+            }
+            BitSet common = (BitSet) friends1.clone();
+            common.and(friends2);
+            return toList(common);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Предложения друзей: друзья друзей пользователя, которые еще не являются его друзьями.
+     *
+     * @param userId - идентификатор пользователя
+     * @param count  - максимальное число предложений
+     * @return - идентификаторы пользователей в порядке убывания числа общих друзей
+     */
+    public List<Integer> suggestions(Integer userId, int count) {
+        lock.readLock().lock();
+        try {
+            BitSet friends = friendsOf.get(userId);
+            if (friends == null) {
+                return List.of();
+            }
+            // число друзей пользователя, у которых кандидат в друзьях
+            Map<Integer, Integer> mutual = new HashMap<>();
+            for (int friendId = friends.nextSetBit(0); friendId >= 0; friendId = friends.nextSetBit(friendId + 1)) {
+                BitSet candidates = friendsOf.get(friendId);
+                if (candidates == null) {
+                    continue;
+                }
+                for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+                    if (id != userId && !friends.get(id)) {
+                        mutual.merge(id, 1, Integer::sum);
+                    }
+                }
+            }
+            return mutual.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(count)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void link(Integer userId, Integer friendId) {
+        friendsOf.computeIfAbsent(userId, id -> new BitSet()).set(friendId);
+    }
+
+    private static List<Integer> toList(BitSet set) {
+        if (set == null) {
+            return List.of();
+        }
+        return set.stream().boxed().toList();
+    }
+}
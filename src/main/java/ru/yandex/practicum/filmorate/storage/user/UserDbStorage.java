@@ -2,25 +2,49 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.mapper.UserRowMapper;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.sql.Types;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Repository
 public class UserDbStorage implements UserStorage {
 
     private static final String SQL_INSERT_USER = "INSERT INTO users (email, login, name, birthday) VALUES (:email, :login, :name, :birthday)";
     private static final String SQL_FIND_USER = "SELECT * FROM users WHERE id = :id";
+    private static final String SQL_EXISTS_USER = "SELECT EXISTS (SELECT 1 FROM users WHERE id = :id)";
+    private static final String SQL_FIND_USERS_BY_IDS = "SELECT * FROM users WHERE id IN (:ids)";
+    private static final String SQL_FIND_ALL_FRIENDSHIPS = "SELECT user_id, friend_id FROM friends";
+    private static final String SQL_EXISTS_FRIEND =
+            "SELECT EXISTS (SELECT 1 FROM friends WHERE user_id = :userId AND friend_id = :friendId)";
+    // друзья друзей пользователя, еще не являющиеся его друзьями, по убыванию числа общих друзей
+    private static final String SQL_FIND_FRIEND_SUGGESTIONS = "SELECT u.* FROM users AS u " +
+            "INNER JOIN (SELECT ff.friend_id AS id, COUNT(*) AS mutual " +
+            "FROM friends AS f INNER JOIN friends AS ff ON ff.user_id = f.friend_id " +
+            "WHERE f.user_id = :userId AND ff.friend_id <> :userId " +
+            "AND ff.friend_id NOT IN (SELECT friend_id FROM friends WHERE user_id = :userId) " +
+            "GROUP BY ff.friend_id) AS s ON s.id = u.id " +
+            "ORDER BY s.mutual DESC, u.id LIMIT :count";
+    private static final String SQL_FIND_USERS_PAGE =
+            "SELECT * FROM users WHERE id > :after ORDER BY id LIMIT :limit";
     private static final String SQL_UPDATE_USER = "UPDATE users SET email = :email, login = :login, name = :name, birthday = :birthday WHERE id = :id";
     private static final String SQL_ADD_FRIEND = "MERGE INTO friends (user_id, friend_id, confirmed) VALUES (:userId, :friendId, FALSE)";
     private static final String SQL_REMOVE_FRIEND = "DELETE FROM friends WHERE (user_id = :userId) AND (friend_id = :friendId)";
@@ -33,20 +57,26 @@ public class UserDbStorage implements UserStorage {
      *
      * @param newUser - объект для добавления
      * @return - подтвержденный объект
+     * @throws ValidationException - если пользователь с таким email уже существует
      */
     @Override
     public User addNewUser(User newUser) {
         // для доступа к сгенерированому ключу новой записи создаем объект GeneratedKeyHolder
         GeneratedKeyHolder generatedKeyHolder = new GeneratedKeyHolder();
 
-        jdbc.update(SQL_INSERT_USER,
-                new MapSqlParameterSource()
-                        .addValue("email", newUser.getEmail())
-                        .addValue("login", newUser.getLogin())
-                        .addValue("name", newUser.getName())
-                        .addValue("birthday", newUser.getBirthday(), Types.DATE),
-                generatedKeyHolder
-        );
+        // уникальность email обеспечивается ограничением таблицы users
+        try {
+            jdbc.update(SQL_INSERT_USER,
+                    new MapSqlParameterSource()
+                            .addValue("email", newUser.getEmail())
+                            .addValue("login", newUser.getLogin())
+                            .addValue("name", newUser.getName())
+                            .addValue("birthday", newUser.getBirthday(), Types.DATE),
+                    generatedKeyHolder
+            );
+        } catch (DuplicateKeyException e) {
+            throw new ValidationException("Пользователь уже существует " + newUser.getEmail());
+        }
 
         // присваиваем сгенерирванный ключ записи в качестве идентификатора пользователя
         newUser.setId(generatedKeyHolder.getKey().intValue());
@@ -72,6 +102,38 @@ public class UserDbStorage implements UserStorage {
         }
     }
 
+    /**
+     * Проверка существования пользователя без чтения его сведений
+     *
+     * @param id - идентификатор пользователя
+     * @return - true, если пользователь существует
+     */
+    @Override
+    public boolean existsUser(Integer id) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(SQL_EXISTS_USER,
+                new MapSqlParameterSource("id", id), Boolean.class));
+    }
+
+    /**
+     * Поиск пользователей по списку идентификаторов
+     *
+     * @param ids - идентификаторы пользователей
+     * @return - список пользователей в порядке идентификаторов списка
+     */
+    @Override
+    public Collection<User> findUsersByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, User> usersMap = jdbc.query(SQL_FIND_USERS_BY_IDS,
+                        new MapSqlParameterSource("ids", ids), new UserRowMapper()).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return ids.stream()
+                .map(usersMap::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
     /**
      * Поиск всех пользователей
      *
@@ -86,6 +148,26 @@ public class UserDbStorage implements UserStorage {
         }
     }
 
+    /**
+     * Постраничное чтение пользователей в порядке возрастания идентификаторов
+     *
+     * @param after - идентификатор последнего пользователя предыдущей страницы, null - с начала списка
+     * @param limit - размер страницы
+     * @return - список пользователей
+     */
+    @Override
+    public Collection<User> findUsers(Integer after, int limit) {
+        try {
+            return jdbc.query(SQL_FIND_USERS_PAGE,
+                    new MapSqlParameterSource()
+                            .addValue("after", after == null ? 0 : after)
+                            .addValue("limit", limit),
+                    new UserRowMapper());
+        } catch (EmptyResultDataAccessException ignored) {
+            return List.of();
+        }
+    }
+
     /**
      * Обновление сведений о пользователе
      *
@@ -110,7 +192,9 @@ public class UserDbStorage implements UserStorage {
      * Удаление всех пользователей
      */
     @Override
+    @Transactional
     public void removeAllUsers() {
+        jdbc.update("UPDATE films SET likes_count = 0", new MapSqlParameterSource());
         jdbc.update("DELETE FROM likes", new MapSqlParameterSource()
                 .addValue("table", "likes"));
         jdbc.update("DELETE FROM friends", new MapSqlParameterSource()
@@ -189,4 +273,43 @@ public class UserDbStorage implements UserStorage {
             return List.of();
         }
     }
+
+    /**
+     * Выгрузка всех пар {пользователь, друг}
+     *
+     * @param consumer - получатель пар идентификаторов
+     */
+    @Override
+    public void findAllFriendships(BiConsumer<Integer, Integer> consumer) {
+        jdbc.query(SQL_FIND_ALL_FRIENDSHIPS, new MapSqlParameterSource(), (RowCallbackHandler) resultSet ->
+                consumer.accept(resultSet.getInt("user_id"), resultSet.getInt("friend_id")));
+    }
+
+    /**
+     * Проверка "дружбы" пользователя с другим пользователем
+     *
+     * @param userId   - идентификатор пользователя
+     * @param friendId - идентификатор друга
+     * @return - true, если пользователь добавил друга
+     */
+    @Override
+    public boolean existsFriend(Integer userId, Integer friendId) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(SQL_EXISTS_FRIEND, new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("friendId", friendId), Boolean.class));
+    }
+
+    /**
+     * Предложения друзей: друзья друзей пользователя, которые еще не являются его друзьями
+     *
+     * @param userId - идентификатор пользователя
+     * @param count  - максимальное число предложений
+     * @return - список пользователей в порядке убывания числа общих друзей
+     */
+    @Override
+    public Collection<User> findFriendSuggestions(Integer userId, int count) {
+        return jdbc.query(SQL_FIND_FRIEND_SUGGESTIONS, new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("count", count), new UserRowMapper());
+    }
 }
@@ -3,7 +3,9 @@ package ru.yandex.practicum.filmorate.storage.user;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 
 public interface UserStorage {
     // добавление нового пользователя
@@ -12,9 +14,18 @@ public interface UserStorage {
     // чтение пользователя по идентификатору
     Optional<User> getUserById(Integer id);
 
+    // проверка существования пользователя по первичному ключу
+    boolean existsUser(Integer id);
+
+    // чтение пользователей по списку идентификаторов в порядке списка
+    Collection<User> findUsersByIds(List<Integer> ids);
+
     // чтение всех пользователей
     Collection<User> findAllUsers();
 
+    // постраничное чтение пользователей по возрастанию идентификатора
+    Collection<User> findUsers(Integer after, int limit);
+
     void updateUser(User updUser);
 
     void removeAllUsers();
@@ -26,4 +37,13 @@ public interface UserStorage {
     Collection<User> getUserFriends(Integer userId);
 
     Collection<User> getCommonFriends(Integer id1, Integer id2);
+
+    // выгрузка всех пар {пользователь, друг}
+    void findAllFriendships(BiConsumer<Integer, Integer> consumer);
+
+    // проверка "дружбы" пользователя с другим пользователем
+    boolean existsFriend(Integer userId, Integer friendId);
+
+    // друзья друзей пользователя, еще не являющиеся его друзьями
+    Collection<User> findFriendSuggestions(Integer userId, int count);
 }
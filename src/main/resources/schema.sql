@@ -44,9 +44,17 @@ CREATE TABLE IF NOT EXISTS films (
                                      description VARCHAR(200),
                                      releaseDate DATE,
                                      len_min INTEGER,
-                                     MPA_id INTEGER NOT NULL REFERENCES MPA(id)
+                                     MPA_id INTEGER NOT NULL REFERENCES MPA(id),
+                                     likes_count INTEGER NOT NULL DEFAULT 0,
+                                     genres_key VARCHAR(200) NOT NULL DEFAULT ''
 );
 
+-- Индекс для выборки фильмов по популярности
+CREATE INDEX IF NOT EXISTS films_likes_count_idx ON films (likes_count DESC, id);
+
+-- Индекс для поиска дубликатов фильма по полям, определяющим равенство фильмов
+CREATE INDEX IF NOT EXISTS films_duplicate_idx ON films (name, releaseDate, MPA_id, genres_key);
+
 -- Создаем таблицу описания жанра фильма
 CREATE TABLE IF NOT EXISTS films_genres (
                                             film_id INTEGER NOT NULL REFERENCES films(id),
@@ -78,6 +86,9 @@ CREATE TABLE IF NOT EXISTS films_directors (
                                             PRIMARY KEY (film_id, director_id)
 );
 
+-- Индекс для выборки фильмов режиссера
+CREATE INDEX IF NOT EXISTS films_directors_director_idx ON films_directors (director_id, film_id);
+
 
 -- Создаем таблицу обзоров к фильмам
 CREATE TABLE IF NOT EXISTS reviews (
@@ -107,3 +118,13 @@ CREATE TABLE IF NOT EXISTS feed (
                                      event_id INTEGER PRIMARY KEY AUTO_INCREMENT,
                                      entity_id INTEGER NOT NULL
 );
+
+-- Индекс для постраничного чтения ленты событий пользователя
+CREATE INDEX IF NOT EXISTS feed_user_timestamp_idx ON feed (user_id, timestamp, event_id);
+
+-- Индексы для выборки отзывов фильма и всех отзывов по убыванию полезности
+CREATE INDEX IF NOT EXISTS reviews_film_useful_idx ON reviews (film_id, useful DESC, review_id);
+CREATE INDEX IF NOT EXISTS reviews_useful_idx ON reviews (useful DESC, review_id);
+
+-- Индекс для удаления пользователя из списков друзей других пользователей
+CREATE INDEX IF NOT EXISTS friends_friend_idx ON friends (friend_id);